@@ -0,0 +1,70 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+/**
+ * char[] の範囲をコピーせずに CharSequence として見せるクラス
+ * DateParser の作業領域に1つ持ち、CSV の読み込みバッファなどの範囲を差し替えて使い回す。
+ * 元の配列を参照するだけなので、パースが終わるまで配列の内容を変更しないこと。
+ */
+final class CharArraySequence implements CharSequence {
+
+    private char[] buf;
+    private int offset;
+    private int length;
+
+    /**
+     * 参照する範囲を差し替える
+     * @param buf 文字の配列
+     * @param offset 開始位置
+     * @param length 文字数
+     */
+    CharArraySequence set(char[] buf, int offset, int length) {
+        CheckRange(buf.length, offset, length);
+        this.buf = buf;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * 配列への参照を外す(パース後に呼び出し元のバッファを保持し続けないため)
+     */
+    void clear() {
+        buf = null;
+        offset = 0;
+        length = 0;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return buf[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        CheckRange(length, start, end - start);
+        return new String(buf, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, offset, length);
+    }
+
+    /**
+     * 範囲が配列に収まっているか確認する
+     * @throws IndexOutOfBoundsException 収まっていない場合
+     */
+    static void CheckRange(int capacity, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > capacity - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", capacity: " + capacity);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * 複数の CSV を1つのプロセスでまとめて変換する(CsvDateConverter の --batch)
+ * ディレクトリまたは glob に一致するファイルを、出力ファイル名の規則({name} は拡張子を除いた入力のファイル名)に従って変換する。
+ * ファイルはスレッド数を上限にして同時に変換し、各ファイルの変換のログはまとめて入力の順に出力する。
+ * 1つのファイルで失敗しても残りのファイルは変換し、最後にファイルごとの結果と所要時間をまとめて表示する。
+ */
+final class CsvBatchConverter {
+
+    /** 出力ファイル名の既定の規則 */
+    static final String DEFAULT_OUTPUT_NAME = "{name}_converted.csv";
+    /** 出力ファイル名の規則の中で、拡張子を除いた入力のファイル名に置き換える部分 */
+    private static final String NAME = "{name}";
+
+    /**
+     * 1つのファイルを変換する処理。複数のスレッドから同時に呼び出される
+     */
+    interface FileConverter {
+        /**
+         * @param log 変換のログ。ファイルの順に convert の log に出力する
+         * @return データ行の数と変換された行数
+         */
+        ParallelCsvConverter.Result convert(Path input, Path output, Appendable log) throws Exception;
+    }
+
+    /**
+     * 1つのファイルの変換の結果
+     */
+    static final class FileResult {
+        final Path input;
+        final Path output;
+        long records;
+        long converted;
+        /** 変換にかかった時間(ナノ秒) */
+        long elapsed;
+        /** 失敗した場合の例外 */
+        Exception error;
+
+        FileResult(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+
+        boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private final int jobs;
+    private final String outputName;
+    private final Path outputDirectory;
+    private final FileConverter converter;
+
+    /**
+     * @param jobs 同時に変換するファイルの数
+     * @param outputName 出力ファイル名の規則。{name} を含むこと
+     * @param outputDirectory 出力先のディレクトリ。null の場合は入力と同じディレクトリ
+     * @param converter 1つのファイルを変換する処理
+     */
+    CsvBatchConverter(int jobs, String outputName, Path outputDirectory, FileConverter converter) {
+        if (jobs < 1) {
+            throw new IllegalArgumentException("同時に変換するファイル数は1以上で指定してください: " + jobs);
+        }
+        if (!outputName.contains(NAME)) {
+            throw new IllegalArgumentException("出力ファイル名に " + NAME + " を含めてください: " + outputName);
+        }
+        this.jobs = jobs;
+        this.outputName = outputName;
+        this.outputDirectory = outputDirectory;
+        this.converter = converter;
+    }
+
+    /**
+     * 入力のファイルを探す
+     * ディレクトリの場合はその中の *.csv、それ以外はファイル名の部分を glob(*、?、[...]、{a,b})とする。
+     * 出力先が入力と同じディレクトリの場合は、出力ファイル名の規則に一致するファイル(前回の出力)を除く。
+     * @param pattern ディレクトリ、ファイル、または glob(例: 固定資産/固定資産4_*.csv)
+     * @return ファイル名の順
+     */
+    List<Path> findInputs(String pattern) throws IOException {
+        Path directory;
+        String glob;
+        int separator = Math.max(pattern.lastIndexOf('/'), pattern.lastIndexOf(File.separatorChar));
+        String name = pattern.substring(separator + 1);
+        if (IsGlob(name)) {
+            // glob の文字は Windows のパスには使えないので、Paths.get に渡す前に分ける
+            directory = Paths.get(separator < 0 ? "." : separator == 0 ? pattern.substring(0, 1) : pattern.substring(0, separator));
+            glob = name;
+        } else if (Files.isDirectory(Paths.get(pattern))) {
+            directory = Paths.get(pattern);
+            glob = "*.csv";
+        } else {
+            return Collections.singletonList(Paths.get(pattern));
+        }
+        Pattern outputs = outputPattern();
+        List<Path> inputs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file) && !(outputs.matcher(file.getFileName().toString()).matches() && isOutputDirectory(file))) {
+                    inputs.add(file);
+                }
+            }
+        }
+        Collections.sort(inputs);
+        return inputs;
+    }
+
+    private static boolean IsGlob(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 出力ファイル名の規則に一致するファイル名の正規表現
+     */
+    private Pattern outputPattern() {
+        int index = outputName.indexOf(NAME);
+        return Pattern.compile(Pattern.quote(outputName.substring(0, index)) + ".+"
+                + Pattern.quote(outputName.substring(index + NAME.length())));
+    }
+
+    /**
+     * 入力のファイルに対応する出力のファイル
+     */
+    Path outputPath(Path input) {
+        String fileName = input.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String name = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return outputDirectory(input).resolve(outputName.replace(NAME, name));
+    }
+
+    private Path outputDirectory(Path input) {
+        return outputDirectory != null ? outputDirectory : input.toAbsolutePath().getParent();
+    }
+
+    /**
+     * ファイルのディレクトリが出力先か(出力先が別のディレクトリなら、規則に一致する名前でも前回の出力ではない)
+     */
+    private boolean isOutputDirectory(Path file) {
+        Path directory = file.toAbsolutePath().normalize().getParent();
+        return directory.equals(outputDirectory(file).toAbsolutePath().normalize());
+    }
+
+    /**
+     * ファイルをまとめて変換する。各ファイルの変換のログは、そのファイルと前のファイルの変換が終わった時点で出力する
+     * 途中で割り込まれた場合は、結果を集めていないファイルを InterruptedException で失敗とし、割り込みの状態を戻して返す。
+     * @param log 変換のログの出力先
+     * @return 入力の順の結果
+     */
+    List<FileResult> convert(List<Path> inputs, Appendable log) throws IOException {
+        List<FileResult> results = new ArrayList<>();
+        for (Path input : inputs) {
+            results.add(new FileResult(input, outputPath(input)));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(jobs, inputs.size())));
+        try {
+            List<Future<StringBuilder>> logs = new ArrayList<>();
+            for (FileResult result : results) {
+                logs.add(pool.submit(() -> convert(result)));
+            }
+            for (int i = 0; i < logs.size(); i++) {
+                StringBuilder fileLog;
+                try {
+                    fileLog = logs.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    // 結果を集めていないファイルは、ログを出力していないので失敗とする(成功の0行と区別する)
+                    for (int j = i; j < results.size(); j++) {
+                        results.get(j).error = e;
+                    }
+                    break;
+                } catch (ExecutionException e) {
+                    // convert(FileResult) は例外を結果に記録するので、ここには来ない
+                    results.get(i).error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    continue;
+                }
+                if (fileLog.length() > 0) {
+                    log.append(fileLog);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private StringBuilder convert(FileResult result) {
+        StringBuilder log = new StringBuilder();
+        long start = System.nanoTime();
+        try {
+            if (result.input.toAbsolutePath().normalize().equals(result.output.toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("入力と出力が同じファイルです");
+            }
+            Files.createDirectories(result.output.toAbsolutePath().getParent());
+            ParallelCsvConverter.Result counts = converter.convert(result.input, result.output, log);
+            result.records = counts.records;
+            result.converted = counts.converted;
+        } catch (Exception e) {
+            result.error = e;
+        }
+        result.elapsed = System.nanoTime() - start;
+        return log;
+    }
+
+    /**
+     * ファイルごとの結果と所要時間、合計を表示する
+     * @param elapsed 全体の所要時間(ナノ秒)
+     */
+    static void printSummary(List<FileResult> results, long elapsed, PrintStream out) {
+        int failed = 0;
+        long records = 0;
+        long converted = 0;
+        out.println("=== 一括変換の結果 ===");
+        for (FileResult result : results) {
+            if (result.isSuccess()) {
+                out.println(String.format("%8dms  %8d行  変換 %8d行  %s → %s", result.elapsed / 1_000_000, result.records,
+                        result.converted, result.input, result.output));
+                records += result.records;
+                converted += result.converted;
+            } else {
+                failed++;
+                out.println(String.format("%8dms  失敗  %s: %s", result.elapsed / 1_000_000, result.input, result.error));
+            }
+        }
+        out.println("ファイル数: " + results.size() + "(成功 " + (results.size() - failed) + "、失敗 " + failed + ")");
+        out.println("データ行の数: " + records + "行、変換された行数: " + converted + "行");
+        out.println("所要時間: " + elapsed / 1_000_000 + "ms");
+    }
+}
@@ -1,28 +1,22 @@
 package co.jp.ariseinnovation.AIReadR.Util;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileInputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
-
 /**
  * CSVファイルの和暦データを西暦に変換するユーティリティクラス
  */
 public class CsvDateConverter {
 
-    private static final DateTimeFormatter OUTPUT_FORMATTER = DateTimeFormat.forPattern("yyyyMM");
-
     /**
      * CSVファイルの指定された列(名称)の和暦データを西暦に変換する
      * @param inputFilePath 入力CSVファイルのパス
@@ -31,26 +25,155 @@ public class CsvDateConverter {
      * @throws Exception 変換処理でエラーが発生した場合
      */
     public static void convertCsvDates(String inputFilePath, String outputFilePath, List<String> targetColumns) throws Exception {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFilePath), StandardCharsets.UTF_8));
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFilePath), StandardCharsets.UTF_8))) {
+        convertCsvDates(inputFilePath, outputFilePath, targetColumns, 1);
+    }
+
+    /**
+     * CSVファイルの指定された列(名称)の和暦データを西暦に変換する
+     * 入力はメモリに割り当てて読み込み、変換の対象かどうかの判定と変換に使うフィールドだけを文字にする。
+     * threads が2以上の場合は、入力をレコードの区切りでチャンクに分けて並列に変換する(出力の行の順序は入力と同じ)。
+     * @param inputFilePath 入力CSVファイルのパス
+     * @param outputFilePath 出力CSVファイルのパス
+     * @param targetColumns 変換対象の列名のリスト (例: 取得, 使用, 事業共用日 など)
+     * @param threads 変換するスレッドの数
+     * @throws Exception 変換処理でエラーが発生した場合
+     */
+    public static void convertCsvDates(String inputFilePath, String outputFilePath, List<String> targetColumns, int threads) throws Exception {
+        if (threads < 1) {
+            throw new IllegalArgumentException("スレッド数は1以上で指定してください: " + threads);
+        }
+        try {
+            // 基準値(今)は変換の開始時に1回だけ求める
+            convertFile(Paths.get(inputFilePath), Paths.get(outputFilePath), normalizeLabels(targetColumns), ParseContext.now(),
+                    threads, System.out);
+            System.out.println("変換が完了しました。出力ファイル: " + outputFilePath);
+        } catch (IOException e) {
+            throw new Exception("CSVファイルの読み書きでエラーが発生しました", e);
+        }
+    }
+
+    /**
+     * 1つのCSVファイルを変換する(convertCsvDates、一括変換で共用)
+     * @param normalizedTargets normalizeLabels 済みの対象の列名
+     * @param log 変換のログの出力先
+     * @return データ行(ヘッダー行を除くレコード)の数と変換された行数
+     * @throws IllegalArgumentException ファイルが空の場合、ヘッダー行に必要な列がない場合
+     */
+    static ParallelCsvConverter.Result convertFile(Path input, Path output, String[] normalizedTargets, ParseContext context,
+            int threads, Appendable log) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             CsvReader reader = new CsvReader(channel, StandardCharsets.UTF_8);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(output.toFile()), CsvReader.DEFAULT_BUFFER_SIZE)) {
 
-            String line = reader.readLine();
-            if (line == null) {
+            if (!reader.next()) {
                 throw new IllegalArgumentException("CSVファイルが空です");
             }
 
             // ヘッダー行を解析して列のインデックスを取得
-            String[] headers = parseCsvLine(line);
+            Columns columns = Columns.of(reader);
+
+            // ヘッダー行を出力
+            reader.copyTo(out, reader.recordStart(), reader.nextRecordStart());
+
+            // データ行を処理
+            if (threads == 1) {
+                ParallelCsvConverter.Result result = new ParallelCsvConverter.Result();
+                result.converted = convertRecords(reader, out, columns, normalizedTargets, context, log);
+                result.records = reader.recordNumber() - 1;
+                return result;
+            }
+            // ヘッダー行の次から、同じファイルを各スレッドで分けて読む
+            return new ParallelCsvConverter(StandardCharsets.UTF_8, threads, ParallelCsvConverter.DEFAULT_CHUNK_SIZE,
+                    (chunk, chunkOut, chunkLog) -> convertRecords(chunk, chunkOut, columns, normalizedTargets, context, chunkLog))
+                    .convert(channel, reader.nextRecordOffset(), out, log);
+        }
+    }
+
+    /**
+     * reader の残りのレコードを変換して出力する
+     * @param log 変換のログの出力先
+     * @return 変換された行数
+     */
+    static int convertRecords(CsvReader reader, OutputStream out, Columns columns, String[] normalizedTargets, ParseContext context,
+            Appendable log) throws IOException {
+        int converted = 0;
+        while (reader.next()) {
+            if (convertRecord(reader, out, columns, normalizedTargets, context, log)) {
+                converted++;
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * 読み込んだ1レコードを変換して出力する
+     * 対象外の行と変換できなかった行は、入力のバイト列をそのまま書き込む(フィールドに分けず、文字列も作らない)。
+     * 変換した行は、Value 列だけを差し替えて前後は入力のまま書き込む。
+     * @param normalizedTargets normalizeLabel 済みの対象の列名
+     * @param log 変換のログの出力先
+     * @return 変換した場合 true
+     */
+    static boolean convertRecord(CsvReader reader, OutputStream out, Columns columns, String[] normalizedTargets, ParseContext context,
+            Appendable log) throws IOException {
+        int valueIndex = columns.valueIndex;
+        int labelIndex = columns.labelIndex(reader);
+        String convertedDate = null;
+        if (valueIndex < reader.fieldCount() && isTarget(labelIndex < 0 ? "" : reader.chars(labelIndex), normalizedTargets)) {
+            String original = reader.field(valueIndex);
+            String normalized = normalizeOcrDateString(original);
+            if (!normalized.isEmpty()) {
+                // 変換できない場合は例外ではなく null が返る
+                convertedDate = convertWarekiToSeireki(normalized, context);
+                if (convertedDate != null) {
+                    String normalizedLabel = normalizeLabel(labelIndex < 0 ? null : reader.field(labelIndex));
+                    log.append("変換: " + normalizedLabel + " = '" + original + "' → '" + convertedDate + "'").append(System.lineSeparator());
+                }
+            }
+        }
+        if (convertedDate == null) {
+            reader.copyTo(out, reader.recordStart(), reader.nextRecordStart());
+            return false;
+        }
+        int valueStart = reader.rawStart(valueIndex);
+        int valueEnd = reader.rawEnd(valueIndex);
+        reader.copyTo(out, reader.recordStart(), valueStart);
+        // 元の値が引用符で囲まれていれば、変換後の値も囲む
+        boolean quote = valueEnd > valueStart && reader.buffer().get(valueStart) == '"';
+        out.write(toCsvField(convertedDate, quote).getBytes(StandardCharsets.UTF_8));
+        reader.copyTo(out, valueEnd, reader.nextRecordStart());
+        return true;
+    }
+
+    /**
+     * ヘッダー行から求めた列の位置
+     */
+    static final class Columns {
+        final int itemNameIndex;
+        final int keyWordIndex;
+        final int valueIndex;
+
+        private Columns(int itemNameIndex, int keyWordIndex, int valueIndex) {
+            this.itemNameIndex = itemNameIndex;
+            this.keyWordIndex = keyWordIndex;
+            this.valueIndex = valueIndex;
+        }
+
+        /**
+         * @param header ヘッダー行を読み込んだ CsvReader
+         * @throws IllegalArgumentException Value列、またはItemName列とKeyWord列のどちらもない場合
+         */
+        static Columns of(CsvReader header) {
             int itemNameIndex = -1;
             int keyWordIndex = -1;
             int valueIndex = -1;
 
-            for (int i = 0; i < headers.length; i++) {
-                if ("ItemName".equals(headers[i])) {
+            for (int i = 0; i < header.fieldCount(); i++) {
+                String name = header.field(i);
+                if ("ItemName".equals(name)) {
                     itemNameIndex = i;
-                } else if ("KeyWord".equals(headers[i])) {
+                } else if ("KeyWord".equals(name)) {
                     keyWordIndex = i;
-                } else if ("Value".equals(headers[i])) {
+                } else if ("Value".equals(name)) {
                     valueIndex = i;
                 }
             }
@@ -61,64 +184,24 @@ public class CsvDateConverter {
             if (itemNameIndex == -1 && keyWordIndex == -1) {
                 throw new IllegalArgumentException("ItemName列またはKeyWord列が見つかりません");
             }
+            return new Columns(itemNameIndex, keyWordIndex, valueIndex);
+        }
 
-            // ヘッダー行を出力
-            writer.write(line);
-            writer.newLine();
-
-            // データ行を処理
-            while ((line = reader.readLine()) != null) {
-                String[] fields = parseCsvLine(line);
-                String[] convertedFields = Arrays.copyOf(fields, headers.length);
-
-                String label = null;
-                if (keyWordIndex != -1 && keyWordIndex < fields.length) {
-                    label = fields[keyWordIndex];
-                }
-                // "null"(文字列)や空なら無効とみなす
-                if (label == null || label.trim().isEmpty() || label.equalsIgnoreCase("null")) {
-                    if (itemNameIndex != -1 && itemNameIndex < fields.length) {
-                        label = fields[itemNameIndex];
-                    }
-                }
-
-                // ラベル正規化
-                String normalizedLabel = normalizeLabel(label);
-
-                // ターゲット名と正規化・厳密一致で判定
-                boolean isTarget = false;
-                for (String t : targetColumns) {
-                    String nt = normalizeLabel(t);
-                    if (normalizedLabel.equals(nt)) {
-                        isTarget = true;
-                        break;
-                    }
-                }
-
-                if (isTarget && valueIndex < fields.length) {
-                    String original = fields[valueIndex] == null ? "" : fields[valueIndex];
-                    String normalized = normalizeOcrDateString(original);
-                    if (!normalized.isEmpty()) {
-                        try {
-                            String convertedDate = convertWarekiToSeireki(normalized);
-                            if (convertedDate != null) {
-                                convertedFields[valueIndex] = convertedDate;
-                                System.out.println("変換: " + normalizedLabel + " = '" + original + "' → '" + convertedDate + "'");
-                            }
-                        } catch (Exception e) {
-                            System.err.println("警告: '" + original + "' を変換できませんでした: " + e.getMessage());
-                        }
-                    }
+        /**
+         * ラベルの列。KeyWord列が空や "null"(文字列)ならItemName列
+         * @return ラベルの列がない場合は -1
+         */
+        int labelIndex(CsvReader reader) {
+            int label = -1;
+            if (keyWordIndex != -1 && keyWordIndex < reader.fieldCount()) {
+                label = keyWordIndex;
+            }
+            if (label == -1 || isBlankOrNull(reader.chars(label))) {
+                if (itemNameIndex != -1 && itemNameIndex < reader.fieldCount()) {
+                    label = itemNameIndex;
                 }
-
-                writer.write(convertToCsvLine(convertedFields));
-                writer.newLine();
             }
-
-            System.out.println("変換が完了しました。出力ファイル: " + outputFilePath);
-
-        } catch (IOException e) {
-            throw new Exception("CSVファイルの読み書きでエラーが発生しました", e);
+            return label;
         }
     }
 
@@ -126,15 +209,35 @@ public class CsvDateConverter {
      * 和暦の日付文字列を西暦のYYYYMM形式に変換する
      */
     public static String convertWarekiToSeireki(String warekiDate) {
-        if (warekiDate == null || warekiDate.trim().isEmpty()) {
+        return convertWarekiToSeireki(warekiDate, ParseContext.now());
+    }
+
+    /**
+     * 和暦の日付文字列を西暦のYYYYMM形式に変換する
+     * @param warekiDate 和暦の日付文字列
+     * @param context パースの基準値
+     */
+    public static String convertWarekiToSeireki(String warekiDate, ParseContext context) {
+        if (warekiDate == null) {
             return null;
         }
-        try {
-            DateTime parsedDate = DateParser.Parse(warekiDate.trim());
-            return parsedDate.toString(OUTPUT_FORMATTER);
-        } catch (Exception e) {
+        // trim した文字列を作らずに、前後の空白を除いた範囲をパースする
+        int start = 0;
+        int end = warekiDate.length();
+        while (start < end && warekiDate.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && warekiDate.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        ParseResult result = DateParser.tryParse(warekiDate, start, end, context);
+        if (!result.isSuccess()) {
             return null;
         }
+        return String.format("%04d%02d", result.getYear(), result.getMonth());
     }
 
     /**
@@ -190,56 +293,191 @@ public class CsvDateConverter {
         return x;
     }
 
-    private static String[] parseCsvLine(String csvLine) {
-        List<String> fields = new ArrayList<>();
-        StringBuilder currentField = new StringBuilder();
-        boolean inQuotes = false;
-        for (int i = 0; i < csvLine.length(); i++) {
-            char c = csvLine.charAt(i);
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                fields.add(currentField.toString());
-                currentField.setLength(0);
-            } else {
-                currentField.append(c);
+    static String[] normalizeLabels(List<String> labels) {
+        String[] normalized = new String[labels.size()];
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = normalizeLabel(labels.get(i));
+        }
+        return normalized;
+    }
+
+    /**
+     * ラベルを normalizeLabel した結果が対象の列名のいずれかと一致するか(文字列を作らずに比較する)
+     */
+    private static boolean isTarget(CharSequence label, String[] normalizedTargets) {
+        for (String target : normalizedTargets) {
+            if (normalizedLabelEquals(label, target)) {
+                return true;
             }
         }
-        fields.add(currentField.toString());
-        return fields.toArray(new String[0]);
+        return false;
     }
 
-    private static String convertToCsvLine(String[] fields) {
-        StringBuilder csvLine = new StringBuilder();
-        for (int i = 0; i < fields.length; i++) {
-            if (i > 0) csvLine.append(',');
-            String field = (fields[i] == null) ? "" : fields[i];
-            if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
-                csvLine.append('"').append(field.replace("\"", "\"\"")).append('"');
-            } else {
-                csvLine.append(field);
+    /**
+     * normalizeLabel(label).equals(normalized) と同じ判定
+     */
+    private static boolean normalizedLabelEquals(CharSequence label, String normalized) {
+        int start = 0;
+        int end = label.length();
+        while (start < end && label.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && label.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (regionEqualsIgnoreCase(label, start, end, "null")) {
+            return normalized.isEmpty();
+        }
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            char c = label.charAt(i);
+            if (c == ' ') {
+                continue;
             }
+            if (c == '\u3000') {
+                c = ' ';
+            }
+            if (n == normalized.length() || normalized.charAt(n) != c) {
+                return false;
+            }
+            n++;
+        }
+        return n == normalized.length();
+    }
+
+    /**
+     * 空(空白のみ)または "null"(文字列)か
+     */
+    private static boolean isBlankOrNull(CharSequence s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
         }
-        return csvLine.toString();
+        return start == end || regionEqualsIgnoreCase(s, 0, s.length(), "null");
+    }
+
+    private static boolean regionEqualsIgnoreCase(CharSequence s, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(s.charAt(start + i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * CSVの1フィールドにする(区切り文字・引用符・改行を含む場合、または quote が true の場合は引用符で囲む)
+     */
+    static String toCsvField(String field, boolean quote) {
+        if (quote || field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+            return '"' + field.replace("\"", "\"\"") + '"';
+        }
+        return field;
     }
 
     public static void main(String[] args) {
-        if (args.length < 3) {
-            System.out.println("使用方法: java CsvDateConverter <入力ファイル> <出力ファイル> <列名1> [列名2] ...");
+        // オプションはどの位置に指定してもよい
+        List<String> positional = new ArrayList<>();
+        int threads = 1;
+        String batch = null;
+        String outputName = CsvBatchConverter.DEFAULT_OUTPUT_NAME;
+        String outputDirectory = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i])) {
+                // 値がない場合や数値でない場合は 0 とし、使用方法を表示する
+                threads = i + 1 < args.length ? parseCount(args[++i]) : 0;
+            } else if ("--batch".equals(args[i]) && i + 1 < args.length) {
+                batch = args[++i];
+            } else if ("--out-name".equals(args[i]) && i + 1 < args.length) {
+                outputName = args[++i];
+            } else if ("--out-dir".equals(args[i]) && i + 1 < args.length) {
+                outputDirectory = args[++i];
+            } else if ("--jobs".equals(args[i])) {
+                jobs = i + 1 < args.length ? parseCount(args[++i]) : 0;
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        if (positional.size() < (batch == null ? 3 : 1) || threads < 1 || jobs < 1) {
+            System.out.println("使用方法: java CsvDateConverter <入力ファイル> <出力ファイル> <列名1> [列名2] ... [--threads N]");
+            System.out.println("          java CsvDateConverter --batch <ディレクトリまたはglob> <列名1> [列名2] ... [--out-name 規則] [--out-dir ディレクトリ] [--jobs N] [--threads N]");
             System.out.println("例: java CsvDateConverter input.csv output.csv 取得 使用 事業共用日 共用日 契約開始日 事業共用");
+            System.out.println("例: java CsvDateConverter --batch \"固定資産/固定資産4_*.csv\" 供用日");
+            System.out.println("  --threads N     大きなファイルをN個のスレッドで並列に変換する（出力の行の順序は入力と同じ）");
+            System.out.println("  --batch <p>     ディレクトリ(中の *.csv)または glob に一致するファイルをまとめて変換する");
+            System.out.println("  --out-name <r>  一括変換の出力ファイル名。{name} は拡張子を除いた入力のファイル名（デフォルト: " + CsvBatchConverter.DEFAULT_OUTPUT_NAME + "）");
+            System.out.println("  --out-dir <d>   一括変換の出力先のディレクトリ（デフォルト: 入力と同じディレクトリ）");
+            System.out.println("  --jobs N        一括変換で同時に変換するファイル数（デフォルト: CPU数）");
             return;
         }
-        String inputFile = args[0];
-        String outputFile = args[1];
-        List<String> targetColumns = new ArrayList<>();
-        for (int i = 2; i < args.length; i++) {
-            targetColumns.add(args[i]);
+        if (batch != null) {
+            if (!convertBatch(batch, positional, outputName, outputDirectory, jobs, threads)) {
+                System.exit(1);
+            }
+            return;
         }
+        String inputFile = positional.get(0);
+        String outputFile = positional.get(1);
+        List<String> targetColumns = new ArrayList<>(positional.subList(2, positional.size()));
         try {
-            convertCsvDates(inputFile, outputFile, targetColumns);
+            convertCsvDates(inputFile, outputFile, targetColumns, threads);
         } catch (Exception e) {
             System.err.println("エラーが発生しました: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    /**
+     * スレッド数などの個数の引数を解析する
+     * @return 数値でない場合は 0
+     */
+    private static int parseCount(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * ディレクトリまたは glob に一致するファイルを1つのプロセスでまとめて変換し、結果をまとめて表示する
+     * @return すべてのファイルを変換できた場合 true
+     */
+    private static boolean convertBatch(String pattern, List<String> targetColumns, String outputName, String outputDirectory,
+            int jobs, int threads) {
+        long start = System.nanoTime();
+        String[] normalizedTargets = normalizeLabels(targetColumns);
+        // 基準値(今)はバッチの開始時に1回だけ求め、すべてのファイルで共用する
+        ParseContext context = ParseContext.now();
+        List<CsvBatchConverter.FileResult> results;
+        try {
+            CsvBatchConverter batch = new CsvBatchConverter(jobs, outputName, outputDirectory == null ? null : Paths.get(outputDirectory),
+                    (input, output, log) -> convertFile(input, output, normalizedTargets, context, threads, log));
+            List<Path> inputs = batch.findInputs(pattern);
+            if (inputs.isEmpty()) {
+                System.err.println("エラーが発生しました: 変換するファイルが見つかりません: " + pattern);
+                return false;
+            }
+            results = batch.convert(inputs, System.out);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("エラーが発生しました: " + e.getMessage());
+            return false;
+        }
+        System.out.println();
+        CsvBatchConverter.printSummary(results, System.nanoTime() - start, System.out);
+        for (CsvBatchConverter.FileResult result : results) {
+            if (!result.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,589 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 の CSV を1レコードずつ読み込むクラス(CsvDateConverter、CsvWarekiConverter で共用)
+ * バイト列の大きなバッファ上でレコードを走査し、各フィールドはバッファ内の位置(開始・終了)として持つ。
+ * 文字列は field などで呼び出し元が求めた場合だけ作成する。
+ * 引用符で囲んだフィールドの区切り文字・改行と、"" による引用符のエスケープに対応する。
+ * 改行は CRLF のほか LF、CR も受け付ける(BufferedReader.readLine と同じ)。
+ * 区切り文字・引用符・改行を1バイトで表す文字コード(UTF-8、Shift_JIS、EUC-JP など)だけを扱う。
+ * ファイルは FileChannel.map でメモリに割り当てて読み込むこともできる。2GB を超えるファイルは、
+ * レコードの区切りから窓(割り当てる範囲)を割り当て直して読み進める。
+ * 規格外の入力は次のように読む。
+ *   * 引用符で始まらないフィールドの途中の引用符は、そのまま文字として扱う
+ *   * 閉じる引用符の後ろの文字は、フィールドの続きとして扱う("ab"cd は abcd)
+ *   * 閉じていない引用符は、入力の終わりまでをフィールドとする
+ */
+final class CsvReader implements Closeable {
+
+    /** 既定のバッファのバイト数 */
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /** FileChannel から読み込む場合の既定の窓のバイト数 */
+    static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+    /** copyTo でダイレクトバッファから書き込むときの作業領域のバイト数 */
+    private static final int COPY_BUFFER_SIZE = 8 * 1024;
+
+    /** 引用符のないフィールド。位置がそのまま内容 */
+    private static final byte PLAIN = 0;
+    /** 引用符で囲んだだけのフィールド。前後の引用符を除いた位置が内容 */
+    private static final byte QUOTED = 1;
+    /** "" のエスケープなどを含むフィールド。内容は引用符を外して作る */
+    private static final byte ESCAPED = 2;
+
+    private static final int DONE = 0;
+    private static final int NEED_MORE = 1;
+
+    private final InputStream in;
+    private final FileChannel channel;
+    /** channel の大きさ(読み込みを始めた時点) */
+    private final long channelSize;
+    /** FileChannel から読み込む場合の窓のバイト数。これより長いレコードは窓を広げて読む */
+    private int windowSize;
+    /** バッファの先頭の、入力の先頭からのバイト数 */
+    private long bufferOffset;
+    private final CharsetDecoder decoder;
+    private byte[] array;
+    private ByteBuffer buf;
+    /** 文字に変換する範囲を指定するための buf の複製 */
+    private ByteBuffer window;
+    /** 有効なデータの終わり */
+    private int limit;
+    /** 次のレコードの開始位置 */
+    private int pos;
+    private boolean eof;
+
+    private long recordNumber;
+    private int recordStart;
+    private int recordEnd;
+    private int nextStart;
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private byte[] fieldKinds = new byte[16];
+
+    /** 引用符を外したフィールドの作業領域 */
+    private byte[] unescaped = new byte[64];
+    private ByteBuffer unescapedBuf = ByteBuffer.wrap(unescaped);
+    private CharBuffer chars = CharBuffer.allocate(64);
+    private byte[] copyBuffer;
+
+    /**
+     * ストリームから読み込む
+     * @param in 入力。close で閉じる
+     * @param charset 文字コード
+     */
+    CsvReader(InputStream in, Charset charset) {
+        this(in, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * ストリームから読み込む
+     * @param in 入力。close で閉じる
+     * @param charset 文字コード
+     * @param bufferSize バッファのバイト数。これより長いレコードはバッファを広げて読む
+     */
+    CsvReader(InputStream in, Charset charset, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("バッファのバイト数は1以上で指定してください: " + bufferSize);
+        }
+        this.in = in;
+        this.channel = null;
+        this.channelSize = 0;
+        this.decoder = NewDecoder(charset);
+        this.array = new byte[bufferSize];
+        this.buf = ByteBuffer.wrap(array);
+        this.window = buf.duplicate();
+    }
+
+    /**
+     * バッファの position から limit までを読み込む(追加の読み込みはしない)
+     * 最後のレコードは改行で終わらなくてもよい。
+     * @param buf 入力。読み込み中は内容を変更しないこと
+     * @param charset 文字コード
+     */
+    CsvReader(ByteBuffer buf, Charset charset) {
+        this.in = null;
+        this.channel = null;
+        this.channelSize = 0;
+        this.decoder = NewDecoder(charset);
+        this.buf = buf;
+        this.window = buf.duplicate();
+        this.pos = buf.position();
+        this.limit = buf.limit();
+        this.eof = true;
+    }
+
+    /**
+     * ファイルをメモリに割り当てて、先頭から読み込む
+     * 窓の単位で割り当て、窓の終わりでレコードが切れる場合はそのレコードの先頭から次の窓を割り当てる。
+     * @param channel 入力。close で閉じる。読み込み中はファイルを変更しないこと
+     * @param charset 文字コード
+     * @param windowSize 窓のバイト数。これより長いレコードは窓を広げて読む
+     */
+    CsvReader(FileChannel channel, Charset charset, int windowSize) throws IOException {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("窓のバイト数は1以上で指定してください: " + windowSize);
+        }
+        this.in = null;
+        this.channel = channel;
+        this.channelSize = channel.size();
+        this.windowSize = windowSize;
+        this.decoder = NewDecoder(charset);
+        this.buf = ByteBuffer.allocate(0);
+        this.window = buf.duplicate();
+    }
+
+    /**
+     * ファイルをメモリに割り当てて、先頭から読み込む(窓のバイト数は DEFAULT_WINDOW_SIZE)
+     * @param channel 入力。close で閉じる。読み込み中はファイルを変更しないこと
+     * @param charset 文字コード
+     */
+    CsvReader(FileChannel channel, Charset charset) throws IOException {
+        this(channel, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    private static CharsetDecoder NewDecoder(Charset charset) {
+        if (!IsAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("区切り文字・引用符・改行を1バイトで表す文字コードを指定してください: " + charset);
+        }
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * 区切り文字・引用符・改行が ASCII と同じ1バイトで、ほかの文字のバイト列に現れない文字コードか
+     * (ISO-2022 系はエスケープ後の2バイト文字に ASCII の範囲のバイトを使うので扱えない)
+     */
+    static boolean IsAsciiCompatible(Charset charset) {
+        String name = charset.name().toUpperCase();
+        if (name.contains("2022")) {
+            return false;
+        }
+        return Arrays.equals(",\"\r\n".getBytes(StandardCharsets.US_ASCII), ",\"\r\n".getBytes(charset));
+    }
+
+    /**
+     * 次のレコードを読み込む
+     * @return レコードがない場合(入力の終わり)は false
+     */
+    boolean next() throws IOException {
+        while (true) {
+            if (pos == limit) {
+                if (eof) {
+                    fieldCount = 0;
+                    return false;
+                }
+                fill();
+                continue;
+            }
+            if (scan() == DONE) {
+                recordNumber++;
+                pos = nextStart;
+                return true;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * pos から1レコードを走査する
+     * @return DONE。バッファの終わりまでにレコードが終わらない場合は NEED_MORE
+     */
+    private int scan() {
+        fieldCount = 0;
+        recordStart = pos;
+        int fieldStart = pos;
+        byte kind = PLAIN;
+        boolean inQuotes = false;
+        int i = pos;
+        while (true) {
+            if (i == limit) {
+                if (!eof) {
+                    return NEED_MORE;
+                }
+                addField(fieldStart, i, inQuotes ? ESCAPED : kind); // 閉じていない引用符は入力の終わりまで
+                recordEnd = i;
+                nextStart = i;
+                return DONE;
+            }
+            byte c = buf.get(i);
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 == limit && !eof) {
+                        return NEED_MORE; // "" かどうかわからない
+                    }
+                    if (i + 1 < limit && buf.get(i + 1) == '"') {
+                        kind = ESCAPED;
+                        i += 2;
+                        continue;
+                    }
+                    inQuotes = false;
+                }
+                i++;
+                continue;
+            }
+            if (c == ',') {
+                addField(fieldStart, i, kind);
+                i++;
+                fieldStart = i;
+                kind = PLAIN;
+                continue;
+            }
+            if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 == limit && !eof) {
+                    return NEED_MORE; // CRLF かどうかわからない
+                }
+                addField(fieldStart, i, kind);
+                recordEnd = i;
+                nextStart = c == '\r' && i + 1 < limit && buf.get(i + 1) == '\n' ? i + 2 : i + 1;
+                return DONE;
+            }
+            if (c == '"') {
+                if (i == fieldStart) {
+                    inQuotes = true;
+                    kind = QUOTED;
+                } else if (kind != PLAIN) {
+                    inQuotes = true; // 閉じた後に再び引用符
+                    kind = ESCAPED;
+                }
+                // 引用符で始まらないフィールドの引用符は文字として扱う
+            } else if (kind == QUOTED) {
+                kind = ESCAPED; // 閉じる引用符の後ろの文字
+            }
+            i++;
+        }
+    }
+
+    /**
+     * 範囲内の最後のレコードの終わり(改行の次の位置)を求める。引用符の中の改行はレコードの区切りにしない
+     * フィールドを記録しないだけで、引用符の扱いは next と同じ。
+     * @param start レコードの先頭
+     * @param end 範囲の終わり(続きのデータがありうる位置)
+     * @return 範囲内にレコードの終わりがない場合は -1
+     */
+    static int LastRecordBoundary(byte[] buf, int start, int end) {
+        return LastRecordBoundary(ByteBuffer.wrap(buf), start, end);
+    }
+
+    /**
+     * 範囲内の最後のレコードの終わりを求める(ByteBuffer の位置で指定する。position、limit は使わない)
+     * @see #LastRecordBoundary(byte[], int, int)
+     */
+    static int LastRecordBoundary(ByteBuffer buf, int start, int end) {
+        int last = -1;
+        boolean fieldStart = true;
+        boolean quotedField = false;
+        boolean inQuotes = false;
+        for (int i = start; i < end; i++) {
+            byte c = buf.get(i);
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 == end) {
+                        break; // "" かどうかわからない
+                    }
+                    if (buf.get(i + 1) == '"') {
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                }
+                continue;
+            }
+            if (c == ',') {
+                fieldStart = true;
+                quotedField = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    if (i + 1 == end) {
+                        break; // CRLF かどうかわからない
+                    }
+                    if (buf.get(i + 1) == '\n') {
+                        i++;
+                    }
+                }
+                last = i + 1;
+                fieldStart = true;
+                quotedField = false;
+            } else if (c == '"' && (fieldStart || quotedField)) {
+                inQuotes = true;
+                quotedField = true;
+                fieldStart = false;
+            } else {
+                fieldStart = false;
+            }
+        }
+        return last;
+    }
+
+    private void addField(int start, int end, byte kind) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldKinds = Arrays.copyOf(fieldKinds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldKinds[fieldCount] = kind;
+        fieldCount++;
+    }
+
+    /**
+     * 読み込み途中のレコードをバッファの先頭に移し、続きを読み込む。レコードがバッファに収まらない場合はバッファを広げる
+     */
+    private void fill() throws IOException {
+        if (channel != null) {
+            map();
+            return;
+        }
+        if (in == null) {
+            eof = true;
+            return;
+        }
+        if (pos > 0) {
+            System.arraycopy(array, pos, array, 0, limit - pos);
+            limit -= pos;
+            bufferOffset += pos;
+            pos = 0;
+        }
+        if (limit == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+            buf = ByteBuffer.wrap(array);
+            window = buf.duplicate();
+        }
+        int n = in.read(array, limit, array.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    /**
+     * 読み込み途中のレコードの先頭から窓を割り当て直す。レコードが窓に収まらない場合は窓を広げる
+     */
+    private void map() throws IOException {
+        if (pos == 0 && limit > 0) {
+            if (windowSize == Integer.MAX_VALUE) {
+                throw new IOException("レコードが長すぎます(" + bufferOffset + "バイト目から)");
+            }
+            windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+        }
+        long offset = bufferOffset + pos;
+        int size = (int) Math.min(windowSize, channelSize - offset);
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        window = buf.duplicate();
+        bufferOffset = offset;
+        pos = 0;
+        limit = size;
+        eof = offset + size == channelSize;
+    }
+
+    /**
+     * 読み込んだレコードの番号(1から)
+     */
+    long recordNumber() {
+        return recordNumber;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 読み込んだレコードを持つバッファ。次の next までレコードの位置は有効
+     */
+    ByteBuffer buffer() {
+        return buf;
+    }
+
+    /**
+     * レコードの開始位置
+     */
+    int recordStart() {
+        return recordStart;
+    }
+
+    /**
+     * レコードの終了位置(改行を含まない)
+     */
+    int recordEnd() {
+        return recordEnd;
+    }
+
+    /**
+     * 改行を含めたレコードの終了位置(次のレコードの開始位置)
+     */
+    int nextRecordStart() {
+        return nextStart;
+    }
+
+    /**
+     * 次のレコードの開始位置の、入力の先頭からのバイト数(ByteBuffer から読み込む場合はバッファの先頭から)
+     */
+    long nextRecordOffset() {
+        return bufferOffset + nextStart;
+    }
+
+    /**
+     * フィールドの開始位置(引用符を含む)
+     */
+    int rawStart(int index) {
+        checkIndex(index);
+        return fieldStarts[index];
+    }
+
+    /**
+     * フィールドの終了位置(引用符を含む。区切り文字は含まない)
+     */
+    int rawEnd(int index) {
+        checkIndex(index);
+        return fieldEnds[index];
+    }
+
+    /**
+     * フィールドが空か(引用符で囲んだ空文字 "" も空とする)
+     */
+    boolean isEmpty(int index) {
+        checkIndex(index);
+        int length = fieldEnds[index] - fieldStarts[index];
+        return length == 0 || (fieldKinds[index] == QUOTED && length == 2);
+    }
+
+    /**
+     * フィールドの内容を文字にする。引用符を外し、"" は " にする
+     * @return 作業領域を参照する CharSequence。次の chars、field の呼び出しまで有効
+     */
+    CharBuffer chars(int index) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        switch (fieldKinds[index]) {
+        case QUOTED:
+            return decode(buf, start + 1, end - 1);
+        case ESCAPED:
+            return decode(unescapedBuf, 0, unescape(start, end));
+        default:
+            return decode(buf, start, end);
+        }
+    }
+
+    /**
+     * フィールドの内容の文字列(引用符を外し、"" は " にしたもの)
+     */
+    String field(int index) {
+        return chars(index).toString();
+    }
+
+    /**
+     * レコードの文字列(改行を含まない。引用符などは元のまま)
+     */
+    String record() {
+        return decode(buf, recordStart, recordEnd).toString();
+    }
+
+    /**
+     * 引用符を外して "" を " にした内容を unescaped に書き込む
+     * @return 書き込んだバイト数
+     */
+    private int unescape(int start, int end) {
+        if (unescaped.length < end - start) {
+            unescaped = new byte[Math.max(end - start, unescaped.length * 2)];
+            unescapedBuf = ByteBuffer.wrap(unescaped);
+        }
+        int length = 0;
+        boolean inQuotes = false;
+        for (int i = start; i < end; i++) {
+            byte c = buf.get(i);
+            if (c == '"') {
+                if (inQuotes && i + 1 < end && buf.get(i + 1) == '"') {
+                    unescaped[length++] = '"';
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+                continue;
+            }
+            unescaped[length++] = c;
+        }
+        return length;
+    }
+
+    /**
+     * バイト列の範囲を文字にして chars に書き込む
+     * @param src buf または unescapedBuf
+     */
+    private CharBuffer decode(ByteBuffer src, int start, int end) {
+        ByteBuffer in = src == buf ? window : src;
+        while (true) {
+            in.clear();
+            in.position(start).limit(end);
+            chars.clear();
+            decoder.reset();
+            CoderResult result = decoder.decode(in, chars, true);
+            if (!result.isOverflow()) {
+                result = decoder.flush(chars);
+            }
+            if (!result.isOverflow()) {
+                break;
+            }
+            chars = CharBuffer.allocate(Math.max(end - start, chars.capacity() * 2));
+        }
+        chars.flip();
+        return chars;
+    }
+
+    /**
+     * バッファの範囲をそのまま書き込む(変換しない行・フィールドの出力に使う)
+     * @param start 開始位置(recordStart、rawEnd など)
+     * @param end 終了位置(nextRecordStart、rawStart など)
+     */
+    void copyTo(OutputStream out, int start, int end) throws IOException {
+        if (buf.hasArray()) {
+            out.write(buf.array(), buf.arrayOffset() + start, end - start);
+            return;
+        }
+        // ダイレクトバッファ(メモリに割り当てたファイルなど)は作業領域を経由する
+        if (copyBuffer == null) {
+            copyBuffer = new byte[COPY_BUFFER_SIZE];
+        }
+        byte[] chunk = copyBuffer;
+        for (int i = start; i < end; i += chunk.length) {
+            int length = Math.min(chunk.length, end - i);
+            window.clear();
+            window.position(i);
+            window.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("index: " + index + ", fieldCount: " + fieldCount);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package co.jp.ariseinnovation.AIReadR.Util;
 
-import org.joda.time.DateTime;
-
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,6 +14,9 @@ import java.util.List;
  */
 public class CsvWarekiConverter {
 
+    /** 書き込みのバッファのバイト数・文字数 */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public static void main(String[] args) throws Exception {
         Arguments params = Arguments.parse(args);
         if (!params.isValid()) {
@@ -25,68 +29,98 @@ public class CsvWarekiConverter {
         System.out.println("出力ファイル: " + params.output);
         System.out.println("対象列: " + params.columns);
         System.out.println("文字コード: " + params.charset);
+        if (params.threads > 1) {
+            System.out.println("スレッド数: " + params.threads);
+        }
         System.out.println();
 
         Charset cs = Charset.forName(params.charset);
-        List<String> lines = new ArrayList<>();
-        
-        // ファイルを読み込み
-        System.out.println("ファイル読み込み中...");
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(params.input), cs))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lines.add(line);
+        // 基準値(今)は変換の開始時に1回だけ求める
+        ParseContext context = ParseContext.now();
+
+        // 1行ずつ読み込み・変換・出力する(入力はメモリに割り当てて窓の単位で読み、ファイル全体を読み込まない)
+        System.out.println("変換処理開始...");
+        Counts counts;
+        if (params.threads > 1) {
+            // レコードの区切りでチャンクに分けて並列に変換する(出力の行の順序は入力と同じ)
+            counts = new Counts();
+            try (FileChannel channel = FileChannel.open(Paths.get(params.input), StandardOpenOption.READ);
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(params.output), BUFFER_SIZE)) {
+                ParallelCsvConverter.Result result = new ParallelCsvConverter(cs, params.threads, ParallelCsvConverter.DEFAULT_CHUNK_SIZE,
+                        (chunk, chunkOut, log) -> {
+                            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(chunkOut, cs), BUFFER_SIZE);
+                            Counts chunkCounts = convert(chunk, writer, params.columns, context, log, 0);
+                            writer.flush();
+                            return (int) chunkCounts.converted;
+                        }).convert(channel, 0, out, System.out);
+                counts.lines = result.records;
+                counts.converted = result.converted;
+            }
+        } else {
+            try (CsvReader reader = new CsvReader(FileChannel.open(Paths.get(params.input), StandardOpenOption.READ), cs);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(params.output), cs), BUFFER_SIZE)) {
+                counts = convert(reader, writer, params.columns, context, System.out, 100);
             }
         }
+        System.out.println("読み込み完了: " + counts.lines + "行");
         
-        System.out.println("読み込み完了: " + lines.size() + "行");
         System.out.println();
-        
-        // 変換処理
-        System.out.println("変換処理開始...");
-        List<String> convertedLines = new ArrayList<>();
-        int convertedCount = 0;
-        
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            String convertedLine = convertLine(line, params.columns);
+        System.out.println("=== 変換完了 ===");
+        System.out.println("変換された行数: " + counts.converted + "行");
+        System.out.println("出力ファイル: " + params.output);
+    }
+
+    /**
+     * 1レコードずつ読み込んで変換し、すぐに出力する。メモリの使用量は入力の大きさによらず、バッファと1レコード分だけになる
+     * @param log 変換のログの出力先
+     * @param progressInterval 進捗を表示する行数の間隔。0の場合は表示しない
+     * @return 読み込んだ行数(レコード数)と変換された行数
+     */
+    static Counts convert(CsvReader reader, BufferedWriter writer, List<String> targetColumns, ParseContext context,
+            Appendable log, int progressInterval) throws IOException {
+        Counts counts = new Counts();
+        while (reader.next()) {
+            String line = reader.record();
+            String convertedLine = convertLine(reader, line, targetColumns, context, log);
             
             if (!line.equals(convertedLine)) {
-                convertedCount++;
+                counts.converted++;
             }
             
-            convertedLines.add(convertedLine);
+            writer.write(convertedLine);
+            writer.newLine();
+            counts.lines++;
             
-            // 進捗表示（100行ごと）
-            if ((i + 1) % 100 == 0) {
-                System.out.println("処理中: " + (i + 1) + "/" + lines.size() + "行");
+            // 進捗表示（全体の行数は読み終わるまでわからない）
+            if (progressInterval > 0 && counts.lines % progressInterval == 0) {
+                System.out.println("処理中: " + counts.lines + "行");
             }
         }
-        
-        // ファイルに出力
-        System.out.println("ファイル出力中...");
-        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(params.output), cs))) {
-            for (String convertedLine : convertedLines) {
-                writer.write(convertedLine);
-                writer.newLine();
-            }
-        }
-        
-        System.out.println();
-        System.out.println("=== 変換完了 ===");
-        System.out.println("変換された行数: " + convertedCount + "行");
-        System.out.println("出力ファイル: " + params.output);
+        return counts;
+    }
+
+    /**
+     * 読み込んだ行数と変換された行数
+     */
+    static class Counts {
+        long lines;
+        long converted;
     }
 
     /**
      * CSVの1行を変換
+     * @param reader 行を読み込んだ CsvReader
+     * @param line 行の文字列(引用符などは元のまま)
      */
-    private static String convertLine(String line, List<String> targetColumns) {
-        // CSVの各行を解析
-        String[] fields = parseCSVLine(line);
-        if (fields.length < 5) {
+    private static String convertLine(CsvReader reader, String line, List<String> targetColumns, ParseContext context,
+            Appendable log) throws IOException {
+        if (reader.fieldCount() < 5) {
             return line; // 列数が足りない場合はそのまま
         }
+        String[] fields = new String[reader.fieldCount()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = reader.field(i);
+        }
         
         String itemName = fields[0]; // 1列目：項目名
         String value = fields[4];    // 5列目：値
@@ -102,21 +136,25 @@ public class CsvWarekiConverter {
         
         if (isTarget && value != null && !value.trim().isEmpty()) {
             // 和暦を西暦に変換
-            String convertedValue = convertToYearMonth(value.trim());
+            String convertedValue = convertToYearMonth(value.trim(), context);
             if (!value.equals(convertedValue)) {
                 fields[4] = convertedValue;
-                System.out.println("変換: " + itemName + " = " + value + " → " + convertedValue);
+                log.append("変換: " + itemName + " = " + value + " → " + convertedValue).append(System.lineSeparator());
+                // フィールドを結合してCSV行を再構築（String.joinの代わりに手動で結合）
+                return joinFields(reader, fields);
             }
         }
         
-        // フィールドを結合してCSV行を再構築（String.joinの代わりに手動で結合）
-        return joinFields(fields);
+        // 変換しない行は元のまま(引用符を外すと、カンマなどを含むフィールドが分かれてしまう)
+        return line;
     }
 
     /**
      * フィールドをカンマで結合（String.joinの代替）
+     * 元のフィールドが引用符で囲まれている場合と、カンマ・引用符・改行を含む場合は引用符で囲み、引用符は "" にする。
+     * @param reader 行を読み込んだ CsvReader(元のフィールドが引用符で囲まれているかを見る)
      */
-    private static String joinFields(String[] fields) {
+    private static String joinFields(CsvReader reader, String[] fields) {
         if (fields == null || fields.length == 0) {
             return "";
         }
@@ -126,42 +164,16 @@ public class CsvWarekiConverter {
             if (i > 0) {
                 result.append(",");
             }
-            result.append(fields[i] != null ? fields[i] : "");
+            boolean quote = reader.rawEnd(i) > reader.rawStart(i) && reader.buffer().get(reader.rawStart(i)) == '"';
+            result.append(fields[i] != null ? CsvDateConverter.toCsvField(fields[i], quote) : "");
         }
         return result.toString();
     }
 
-    /**
-     * CSV行をフィールドに分割
-     */
-    private static String[] parseCSVLine(String line) {
-        List<String> fields = new ArrayList<>();
-        StringBuilder currentField = new StringBuilder();
-        boolean inQuotes = false;
-        
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                fields.add(currentField.toString());
-                currentField.setLength(0);
-            } else {
-                currentField.append(c);
-            }
-        }
-        
-        // 最後のフィールド
-        fields.add(currentField.toString());
-        
-        return fields.toArray(new String[0]);
-    }
-
     /**
      * 和暦を西暦YYYYMM形式に変換
      */
-    private static String convertToYearMonth(String src) {
+    private static String convertToYearMonth(String src, ParseContext context) {
         String trimmed = src == null ? "" : src.trim();
         if (trimmed.isEmpty()) {
             return trimmed;
@@ -186,15 +198,14 @@ public class CsvWarekiConverter {
             return String.valueOf(seireki) + month;
 
         } else {
-            try {
-                // DateParser.Parse は DateTime オブジェクトを返すので、toString() で文字列に変換する
-                DateTime parsedDate = DateParser.Parse(trimmed);
-                // YYYYMM の形式で出力
-                return parsedDate.toString("yyyyMM");
-            } catch (Exception e) {
+            // 例外を使わずにパースする(OCRの誤読が多いため、失敗のたびに例外を作らない)
+            ParseResult result = DateParser.tryParse(trimmed, context);
+            if (!result.isSuccess()) {
                 // 変換できない場合は元の値を返す
                 return trimmed;
             }
+            // YYYYMM の形式で出力
+            return String.format("%04d%02d", result.getYear(), result.getMonth());
         }
     }
 
@@ -203,13 +214,14 @@ public class CsvWarekiConverter {
      */
     private static void printUsage() {
         System.out.println("使用方法:");
-        System.out.println("java -cp . co.jp.ariseinnovation.AIReadR.Util.CsvWarekiConverter --in <input.csv> --out <output.csv> [--cols col1,col2,...] [--charset UTF-8]");
+        System.out.println("java -cp . co.jp.ariseinnovation.AIReadR.Util.CsvWarekiConverter --in <input.csv> --out <output.csv> [--cols col1,col2,...] [--charset UTF-8] [--threads N]");
         System.out.println();
         System.out.println("オプション:");
         System.out.println("  --in <file>     入力CSVファイル");
         System.out.println("  --out <file>    出力CSVファイル");
         System.out.println("  --cols <list>   変換対象列（カンマ区切り）");
         System.out.println("  --charset <cs>  文字コード（デフォルト: UTF-8）");
+        System.out.println("  --threads <n>   変換するスレッド数（デフォルト: 1）。出力の行の順序は入力と同じ");
         System.out.println();
         System.out.println("例:");
         System.out.println("java -cp . CsvWarekiConverter --in input.csv --out output.csv --cols 取得,使用,供用");
@@ -225,10 +237,11 @@ public class CsvWarekiConverter {
         String input;
         String output;
         String charset = "UTF-8";
+        int threads = 1;
         List<String> columns;
 
         boolean isValid() {
-            return input != null && output != null && !input.isEmpty() && !output.isEmpty();
+            return input != null && output != null && !input.isEmpty() && !output.isEmpty() && threads >= 1;
         }
 
         static Arguments parse(String[] args) {
@@ -241,6 +254,9 @@ public class CsvWarekiConverter {
                     a.output = args[++i];
                 } else if ("--charset".equals(s) && i + 1 < args.length) {
                     a.charset = args[++i];
+                } else if ("--threads".equals(s)) {
+                    // 値がない場合や数値でない場合は 0 とし、isValid で使用方法を表示する
+                    a.threads = i + 1 < args.length ? parseCount(args[++i]) : 0;
                 } else if ("--cols".equals(s) && i + 1 < args.length) {
                     String[] cols = args[++i].split(",");
                     a.columns = new ArrayList<>();
@@ -260,5 +276,16 @@ public class CsvWarekiConverter {
             
             return a;
         }
+
+        /**
+         * @return 数値でない場合は 0
+         */
+        private static int parseCount(String value) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
     }
 }
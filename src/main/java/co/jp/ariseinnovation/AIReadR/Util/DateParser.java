@@ -1,19 +1,19 @@
 package co.jp.ariseinnovation.AIReadR.Util;
 
-import co.jp.ariseinnovation.AIReadEE.AIReadEEUtil;
 import co.jp.ariseinnovation.AIReadR.Exception.FormatException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
 
-import java.time.YearMonth;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * DateTime.Parse を以下の目的で更新。
@@ -26,662 +26,1515 @@ import java.util.regex.Pattern;
  */
 public class DateParser
 {
-    private static final int MINIMUM_YEAR = 1000;
-    private static final int MAXIMUM_YEAR = 9999;
     private static final int DATE_MATSUJITU_SIGN = -1;
     private static final int DATE_NOTEXIST_SIGN = -2, DATE_NOTSET_NOW_SIGN = -2;
 
     private static Logger logger = LogManager.getLogger(DateParser.class.getName());
 
-    public static final LinkedHashMap<String, String> halfToFullDictionary = new LinkedHashMap() {{
-        put("０","0");put("１","1");put("２","2");put("３","3");put("４","4");put("５","5");put("６","6");put("７","7");put("８","8");put("９","9");
-        put("二十一","21");put("二十二","22");put("二十三","23");put("二十四","24");put("二十五","25");put("二十六","26");put("二十七","27");
-        put("二十八","28");put("二十九","29");put("二十","20");
-        put("三十一","31");put("三十","30");
-        put("十一","11");put("十二","12");put("十三","13");put("十四","14");put("十五","15");put("十六","16");put("十七","17");put("十八","18");put("十九","19");put("十","10");
-        put("〇","0");put("零","0");put("一","1");put("二","2");put("三","3");put("四","4");put("五","5");put("六","6");put("七","7");put("八","8");put("九","9");
-        put("元","1");
-        put("Ｓ","S");put("Ｈ","H");put("Ｒ","R");put("Ｌ","L");
-    }};
-
-    public static final LinkedHashMap<String, String> englishMonthDictionary = new LinkedHashMap() {{
-        put("january", "01");
-        put("february", "02");
-        put("march", "03");
-        put("april", "04");
-        put("may", "05");
-        put("june", "06");
-        put("july", "07");
-        put("august", "08");
-        put("september", "09");
-        put("october", "10");
-        put("november", "11");
-        put("december", "12");
-        put("jan", "01");
-        put("feb", "02");
-        put("mar", "03");
-        put("apr", "04");
-        put("jun", "06");
-        put("jul", "07");
-        put("aug", "08");
-        put("sep", "09");
-        put("oct", "10");
-        put("nov", "11");
-        put("dec", "12");
-    }};
-
-    private DateParser()
+    /**
+     * 全角→半角、漢数字→数字の置換辞書(変更できない)
+     * 辞書を変える場合は、コピーを変更して builder() で別のインスタンスを作成すること。
+     */
+    public static final Map<String, String> halfToFullDictionary = Collections.unmodifiableMap(NewHalfToFullDictionary());
+
+    /**
+     * 英語月と月の数字の辞書(変更できない)。halfToFullDictionary と同じく、変える場合は builder() を使うこと。
+     */
+    public static final Map<String, String> englishMonthDictionary = Collections.unmodifiableMap(NewEnglishMonthDictionary());
+
+    private static LinkedHashMap<String, String> NewHalfToFullDictionary()
+    {
+        LinkedHashMap<String, String> dictionary = new LinkedHashMap<>();
+        dictionary.put("０","0");dictionary.put("１","1");dictionary.put("２","2");dictionary.put("３","3");dictionary.put("４","4");dictionary.put("５","5");dictionary.put("６","6");dictionary.put("７","7");dictionary.put("８","8");dictionary.put("９","9");
+        dictionary.put("二十一","21");dictionary.put("二十二","22");dictionary.put("二十三","23");dictionary.put("二十四","24");dictionary.put("二十五","25");dictionary.put("二十六","26");dictionary.put("二十七","27");
+        dictionary.put("二十八","28");dictionary.put("二十九","29");dictionary.put("二十","20");
+        dictionary.put("三十一","31");dictionary.put("三十","30");
+        dictionary.put("十一","11");dictionary.put("十二","12");dictionary.put("十三","13");dictionary.put("十四","14");dictionary.put("十五","15");dictionary.put("十六","16");dictionary.put("十七","17");dictionary.put("十八","18");dictionary.put("十九","19");dictionary.put("十","10");
+        dictionary.put("〇","0");dictionary.put("零","0");dictionary.put("一","1");dictionary.put("二","2");dictionary.put("三","3");dictionary.put("四","4");dictionary.put("五","5");dictionary.put("六","6");dictionary.put("七","7");dictionary.put("八","8");dictionary.put("九","9");
+        dictionary.put("元","1");
+        dictionary.put("Ｓ","S");dictionary.put("Ｈ","H");dictionary.put("Ｒ","R");dictionary.put("Ｌ","L");
+        return dictionary;
+    }
+
+    private static LinkedHashMap<String, String> NewEnglishMonthDictionary()
+    {
+        LinkedHashMap<String, String> dictionary = new LinkedHashMap<>();
+        dictionary.put("january", "01");
+        dictionary.put("february", "02");
+        dictionary.put("march", "03");
+        dictionary.put("april", "04");
+        dictionary.put("may", "05");
+        dictionary.put("june", "06");
+        dictionary.put("july", "07");
+        dictionary.put("august", "08");
+        dictionary.put("september", "09");
+        dictionary.put("october", "10");
+        dictionary.put("november", "11");
+        dictionary.put("december", "12");
+        dictionary.put("jan", "01");
+        dictionary.put("feb", "02");
+        dictionary.put("mar", "03");
+        dictionary.put("apr", "04");
+        dictionary.put("jun", "06");
+        dictionary.put("jul", "07");
+        dictionary.put("aug", "08");
+        dictionary.put("sep", "09");
+        dictionary.put("oct", "10");
+        dictionary.put("nov", "11");
+        dictionary.put("dec", "12");
+        return dictionary;
+    }
+
+    /** ParseDigits などで、String.substring や Integer.parseInt が失敗する場合の値 */
+    private static final int PARSE_ERROR = Integer.MIN_VALUE;
+
+    /** ParseTimestamp で、時刻付きの形でないことを示す値(ParseStatus.packed() と重ならない値) */
+    private static final int NOT_TIMESTAMP = Integer.MIN_VALUE;
+
+    private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000 };
+
+    /** parseAllParallel で、これ以下の件数は分割しない既定値 */
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 4096;
+
+    private static final ThreadLocal<ParseScratch> SCRATCH = ThreadLocal.withInitial(ParseScratch::new);
+
+    /** static のメソッドが使うインスタンス。クラスの初期化時の辞書から変換表を作成する */
+    private static final DateParser DEFAULT = new DateParser(ParserConfig.defaults());
+
+    private final ParserConfig config;
+
+    private DateParser(ParserConfig config)
+    {
+        this.config = config;
+    }
+
+    /**
+     * 辞書や年の範囲を変えた DateParser を作成する Builder
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * 設定から DateParser を作成する。作成したインスタンスは変更できず、スレッド間でロックせずに共有できる。
+     */
+    public static DateParser of(ParserConfig config)
+    {
+        return new DateParser(config);
+    }
+
+    /**
+     * static のメソッドが使うインスタンス
+     */
+    public static DateParser getDefault()
+    {
+        return DEFAULT;
+    }
+
+    public ParserConfig getConfig()
+    {
+        return config;
+    }
+
+    /**
+     * 呼び出し元のスレッドの作業領域(ParseCache がキーを作るときに使う)
+     */
+    static ParseScratch CurrentScratch()
+    {
+        return SCRATCH.get();
+    }
+
+    /**
+     * パースの前の正規化(英字の小文字化、全角→半角、漢数字→数字の置換)をした文字列(ParseCache のキー)
+     * パースは正規化した文字だけを読むので、正規化した結果が同じ文字列はパースの結果も同じになる。
+     * 辞書の置換先は空でないので、空でない文字列が空の文字列になることはない。
+     */
+    String normalize(CharSequence src, ParseScratch scratch)
+    {
+        FullToHalfNormalizer normalizer = scratch.normalizer(config.normalizerTable);
+        normalizer.normalize(src, 0, src.length());
+        return new String(normalizer.buffer(), 0, normalizer.length());
+    }
+
+    /**
+     * normalize の直後に、作業領域に残っている正規化済みの文字をパースする(ParseCache のミスで、もう一度正規化しない)
+     * 正規化済みの文字は書き換えるので、キーの文字列は先に作ること。
+     */
+    ParseResult parseNormalized(ParseScratch scratch, ParseContext context)
+    {
+        FullToHalfNormalizer normalizer = scratch.normalizer(config.normalizerTable);
+        scratch.hasTime = false;
+        int packed;
+        if (normalizer.length() == 0)
+        {
+            packed = ParseStatus.EMPTY.packed();
+        }
+        else
+        {
+            try
+            {
+                packed = ParseNormalized(config, normalizer, context.getBasisYear(), context.getBasisMonth(), scratch);
+            }
+            catch (RuntimeException e)
+            {
+                packed = ParseStatus.UNRECOGNIZED.packed();
+            }
+        }
+        return ToResult(packed, scratch);
+    }
+
+    public static DateTime Parse(String src) throws Exception
+    {
+    	return Parse(src, null);
+    }
+    
+	/**
+	 * 日付をパースする。
+     * @param src パースする文字列
+     * @param basisDate パースする際に参考にされる基準値。この日に近い日付が選択される。省略すると、「今」を基準値とする。
+	 * @throws Exception 
+	 */
+    public static DateTime Parse(String src, DateTime basisDate) throws Exception
+    {
+        return DEFAULT.parseDateTime(src, basisDate);
+    }
+
+    /**
+     * 日付をパースする。Parse と同じだが、このインスタンスの設定を使う。
+     * @param src パースする文字列
+     * @param basisDate パースする際に参考にされる基準値。この日に近い日付が選択される。省略すると、「今」を基準値とする。
+     * @throws Exception パースできない場合は FormatException
+     */
+    public DateTime parseDateTime(String src, DateTime basisDate) throws Exception
+    {
+        if (src == null)
+        {
+        	throw new IllegalArgumentException("failed to parse dateString");
+        }
+        DateTime basis = IfNullNowOrAsis(basisDate);
+        ParseScratch scratch = SCRATCH.get();
+        int packed;
+        try
+        {
+            packed = ParseInner(config, src, 0, src.length(), basis.getYear(), basis.getMonthOfYear(), scratch);
+        }
+        catch (RuntimeException e)
+        {
+            throw new FormatException(src + " is not parsable", e);
+        }
+        if (packed < 0)
+        {
+            throw new FormatException(src + " is not parsable (" + ParseStatus.ofPacked(packed) + ")");
+        }
+        try
+        {
+            if (scratch.hasTime)
+            {
+                return new DateTime(packed / 10000, packed / 100 % 100, packed % 100,
+                        scratch.hour, scratch.minute, scratch.second, scratch.nano / 1000000);
+            }
+            return new DateTime(packed / 10000, packed / 100 % 100, packed % 100, 0, 0);
+        }
+        catch (RuntimeException e)
+        {
+            // 既定のタイムゾーンに存在しない時刻(夏時間の切り替え)
+            throw new FormatException(src + " is not parsable", e);
+        }
+    }
+
+    /**
+     * 例外を使わずに日付をパースする。「今」を基準値とする。
+     * @param src パースする文字列
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     */
+    public static ParseResult tryParse(CharSequence src)
+    {
+        return tryParse(src, ParseContext.now());
+    }
+
+    /**
+     * 例外を使わずに日付をパースする。
+     * @param src パースする文字列
+     * @param context パースの基準値。バッチの開始時などに1回作成して使い回す
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     */
+    public static ParseResult tryParse(CharSequence src, ParseContext context)
+    {
+        return tryParse(src, context.getBasisYear(), context.getBasisMonth());
+    }
+
+    /**
+     * 例外を使わずに日付をパースする。
+     * @param src パースする文字列
+     * @param basisDate パースする際に参考にされる基準値。この日に近い日付が選択される。
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     */
+    public static ParseResult tryParse(CharSequence src, LocalDate basisDate)
+    {
+        return tryParse(src, basisDate.getYear(), basisDate.getMonthValue());
+    }
+
+    /**
+     * 例外を使わずに日付をパースする。
+     * @param src パースする文字列
+     * @param basisYear パースする際に参考にされる基準値の年。この年に近い日付が選択される。
+     * @param basisMonth パースする際に参考にされる基準値の月(1～12)
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     */
+    public static ParseResult tryParse(CharSequence src, int basisYear, int basisMonth)
+    {
+        return DEFAULT.parse(src, basisYear, basisMonth);
+    }
+
+    /**
+     * 例外を使わずに日付をパースする。tryParse と同じだが、このインスタンスの設定を使う。
+     * @param src パースする文字列
+     * @param context パースの基準値
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     */
+    public ParseResult parse(CharSequence src, ParseContext context)
+    {
+        return parse(src, context.getBasisYear(), context.getBasisMonth());
+    }
+
+    /**
+     * 例外を使わずに日付をパースする。tryParse と同じだが、このインスタンスの設定を使う。
+     * @param src パースする文字列
+     * @param basisYear パースする際に参考にされる基準値の年
+     * @param basisMonth パースする際に参考にされる基準値の月(1～12)
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     */
+    public ParseResult parse(CharSequence src, int basisYear, int basisMonth)
+    {
+        return ToResult(parsePacked(src, basisYear, basisMonth), SCRATCH.get());
+    }
+
+    /**
+     * パースした直後の scratch から結果を作成する(時刻付きの場合は時刻も含める)
+     */
+    private static ParseResult ToResult(int packed, ParseScratch scratch)
+    {
+        if (packed >= 0 && scratch.hasTime)
+        {
+            return ParseResult.ofPacked(packed, scratch.nanoOfDay());
+        }
+        return ParseResult.ofPacked(packed);
+    }
+
+    /**
+     * 日付をパースして yyyymmdd の数値で返す。成功時はオブジェクトを生成しない。
+     * @param src パースする文字列
+     * @param context パースの基準値。バッチの開始時などに1回作成して使い回す
+     * @return yyyymmdd (例: 2021年1月5日 → 20210105)。パースできない場合は負の値(ParseStatus.packed())
+     */
+    public static int parseToPackedInt(CharSequence src, ParseContext context)
+    {
+        return parseToPackedInt(src, context.getBasisYear(), context.getBasisMonth());
+    }
+
+    /**
+     * 日付をパースして yyyymmdd の数値で返す。成功時はオブジェクトを生成しない。
+     * @param src パースする文字列
+     * @param basisYear パースする際に参考にされる基準値の年。この年に近い日付が選択される。
+     * @param basisMonth パースする際に参考にされる基準値の月(1～12)
+     * @return yyyymmdd (例: 2021年1月5日 → 20210105)。パースできない場合は負の値(ParseStatus.packed())
+     */
+    public static int parseToPackedInt(CharSequence src, int basisYear, int basisMonth)
+    {
+        return DEFAULT.parsePacked(src, basisYear, basisMonth);
+    }
+
+    /**
+     * 日付をパースして yyyymmdd の数値で返す。parseToPackedInt と同じだが、このインスタンスの設定を使う。
+     * @param src パースする文字列
+     * @param context パースの基準値
+     * @return yyyymmdd。パースできない場合は負の値(ParseStatus.packed())
+     */
+    public int parsePacked(CharSequence src, ParseContext context)
+    {
+        return parsePacked(src, context.getBasisYear(), context.getBasisMonth());
+    }
+
+    /**
+     * 日付をパースして yyyymmdd の数値で返す。parseToPackedInt と同じだが、このインスタンスの設定を使う。
+     * @param src パースする文字列
+     * @param basisYear パースする際に参考にされる基準値の年
+     * @param basisMonth パースする際に参考にされる基準値の月(1～12)
+     * @return yyyymmdd。パースできない場合は負の値(ParseStatus.packed())
+     */
+    public int parsePacked(CharSequence src, int basisYear, int basisMonth)
+    {
+        return ParsePacked(config, src, basisYear, basisMonth, SCRATCH.get());
+    }
+
+    /**
+     * UTF-8 のバイト列の範囲を、UTF-16 の文字列にデコードせずにパースする。ファイルやソケットから読んだバイト列をそのまま渡せる。
+     * @param utf8 UTF-8 のバイト列
+     * @param offset 開始位置
+     * @param length バイト数
+     * @param context パースの基準値
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     * @throws IndexOutOfBoundsException 範囲が配列に収まっていない場合
+     */
+    public static ParseResult tryParseUtf8(byte[] utf8, int offset, int length, ParseContext context)
+    {
+        return DEFAULT.parseUtf8(utf8, offset, length, context);
+    }
+
+    /**
+     * ByteBuffer の position から limit までの UTF-8 のバイト列をパースする。position は変更しない。
+     * @see #tryParseUtf8(byte[], int, int, ParseContext)
+     */
+    public static ParseResult tryParseUtf8(ByteBuffer utf8, ParseContext context)
+    {
+        return DEFAULT.parseUtf8(utf8, context);
+    }
+
+    /**
+     * UTF-8 のバイト列の範囲を yyyymmdd の数値にする。
+     * @see #tryParseUtf8(byte[], int, int, ParseContext)
+     * @return yyyymmdd。パースできない場合は負の値(ParseStatus.packed())
+     */
+    public static int parseUtf8ToPackedInt(byte[] utf8, int offset, int length, ParseContext context)
+    {
+        return DEFAULT.parsePackedUtf8(utf8, offset, length, context);
+    }
+
+    /**
+     * ByteBuffer の position から limit までの UTF-8 のバイト列を yyyymmdd の数値にする。position は変更しない。
+     * @see #tryParseUtf8(byte[], int, int, ParseContext)
+     * @return yyyymmdd。パースできない場合は負の値(ParseStatus.packed())
+     */
+    public static int parseUtf8ToPackedInt(ByteBuffer utf8, ParseContext context)
+    {
+        return DEFAULT.parsePackedUtf8(utf8, context);
+    }
+
+    /**
+     * UTF-8 のバイト列の範囲をパースする。tryParseUtf8 と同じだが、このインスタンスの設定を使う。
+     * @see #tryParseUtf8(byte[], int, int, ParseContext)
+     */
+    public ParseResult parseUtf8(byte[] utf8, int offset, int length, ParseContext context)
+    {
+        return ToResult(parsePackedUtf8(utf8, offset, length, context), SCRATCH.get());
+    }
+
+    /**
+     * ByteBuffer の UTF-8 のバイト列をパースする。tryParseUtf8 と同じだが、このインスタンスの設定を使う。
+     * @see #tryParseUtf8(ByteBuffer, ParseContext)
+     */
+    public ParseResult parseUtf8(ByteBuffer utf8, ParseContext context)
+    {
+        return ToResult(parsePackedUtf8(utf8, context), SCRATCH.get());
+    }
+
+    /**
+     * UTF-8 のバイト列の範囲を yyyymmdd の数値にする。parseUtf8ToPackedInt と同じだが、このインスタンスの設定を使う。
+     * @see #tryParseUtf8(byte[], int, int, ParseContext)
+     */
+    public int parsePackedUtf8(byte[] utf8, int offset, int length, ParseContext context)
+    {
+        if (utf8 == null)
+        {
+            return ParseStatus.EMPTY.packed();
+        }
+        CharArraySequence.CheckRange(utf8.length, offset, length);
+        return ParsePackedUtf8(config, utf8, offset, offset + length, context, SCRATCH.get());
+    }
+
+    /**
+     * ByteBuffer の UTF-8 のバイト列を yyyymmdd の数値にする。parseUtf8ToPackedInt と同じだが、このインスタンスの設定を使う。
+     * 配列を持たない(ダイレクト)バッファは、作業領域にコピーしてからパースする。
+     * @see #tryParseUtf8(ByteBuffer, ParseContext)
+     */
+    public int parsePackedUtf8(ByteBuffer utf8, ParseContext context)
+    {
+        if (utf8 == null)
+        {
+            return ParseStatus.EMPTY.packed();
+        }
+        ParseScratch scratch = SCRATCH.get();
+        int position = utf8.position();
+        int length = utf8.remaining();
+        if (utf8.hasArray())
+        {
+            int start = utf8.arrayOffset() + position;
+            return ParsePackedUtf8(config, utf8.array(), start, start + length, context, scratch);
+        }
+        byte[] bytes = scratch.bytes(length);
+        for (int i = 0; i < length; i++)
+        {
+            bytes[i] = utf8.get(position + i);
+        }
+        return ParsePackedUtf8(config, bytes, 0, length, context, scratch);
+    }
+
+    private static int ParsePackedUtf8(ParserConfig config, byte[] utf8, int start, int end, ParseContext context, ParseScratch scratch)
+    {
+        try
+        {
+            return ParseUtf8(config, utf8, start, end, context.getBasisYear(), context.getBasisMonth(), scratch);
+        }
+        catch (RuntimeException e)
+        {
+            return ParseStatus.UNRECOGNIZED.packed();
+        }
+    }
+
+    /**
+     * 文字列の範囲を、部分文字列を作成せずにパースする。
+     * @param src パースする文字列(CSV の行など)
+     * @param start 開始位置
+     * @param end 終了位置(この位置の文字は含まない)
+     * @param context パースの基準値
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     * @throws IndexOutOfBoundsException 範囲が文字列に収まっていない場合
+     */
+    public static ParseResult tryParse(CharSequence src, int start, int end, ParseContext context)
+    {
+        return DEFAULT.parse(src, start, end, context);
+    }
+
+    /**
+     * char[] の範囲を、コピーせずにパースする。CSV の読み込みバッファの範囲をそのまま渡せる。
+     * @param buf パースする文字の配列
+     * @param offset 開始位置
+     * @param length 文字数
+     * @param context パースの基準値
+     * @return パース結果。失敗した場合は理由(ParseStatus)を持つ
+     * @throws IndexOutOfBoundsException 範囲が配列に収まっていない場合
+     */
+    public static ParseResult tryParse(char[] buf, int offset, int length, ParseContext context)
+    {
+        return DEFAULT.parse(buf, offset, length, context);
+    }
+
+    /**
+     * 文字列の範囲を、部分文字列を作成せずに yyyymmdd の数値にする。
+     * @see #tryParse(CharSequence, int, int, ParseContext)
+     * @return yyyymmdd。パースできない場合は負の値(ParseStatus.packed())
+     */
+    public static int parseToPackedInt(CharSequence src, int start, int end, ParseContext context)
+    {
+        return DEFAULT.parsePacked(src, start, end, context);
+    }
+
+    /**
+     * char[] の範囲を、コピーせずに yyyymmdd の数値にする。
+     * @see #tryParse(char[], int, int, ParseContext)
+     * @return yyyymmdd。パースできない場合は負の値(ParseStatus.packed())
+     */
+    public static int parseToPackedInt(char[] buf, int offset, int length, ParseContext context)
+    {
+        return DEFAULT.parsePacked(buf, offset, length, context);
+    }
+
+    /**
+     * 文字列の範囲をパースする。tryParse と同じだが、このインスタンスの設定を使う。
+     * @see #tryParse(CharSequence, int, int, ParseContext)
+     */
+    public ParseResult parse(CharSequence src, int start, int end, ParseContext context)
+    {
+        return ToResult(parsePacked(src, start, end, context), SCRATCH.get());
+    }
+
+    /**
+     * char[] の範囲をパースする。tryParse と同じだが、このインスタンスの設定を使う。
+     * @see #tryParse(char[], int, int, ParseContext)
+     */
+    public ParseResult parse(char[] buf, int offset, int length, ParseContext context)
+    {
+        return ToResult(parsePacked(buf, offset, length, context), SCRATCH.get());
+    }
+
+    /**
+     * 文字列の範囲を yyyymmdd の数値にする。parseToPackedInt と同じだが、このインスタンスの設定を使う。
+     * @see #tryParse(CharSequence, int, int, ParseContext)
+     */
+    public int parsePacked(CharSequence src, int start, int end, ParseContext context)
+    {
+        if (src == null)
+        {
+            return ParseStatus.EMPTY.packed();
+        }
+        CharArraySequence.CheckRange(src.length(), start, end - start);
+        return ParsePacked(config, src, start, end, context.getBasisYear(), context.getBasisMonth(), SCRATCH.get());
+    }
+
+    /**
+     * char[] の範囲を yyyymmdd の数値にする。parseToPackedInt と同じだが、このインスタンスの設定を使う。
+     * @see #tryParse(char[], int, int, ParseContext)
+     */
+    public int parsePacked(char[] buf, int offset, int length, ParseContext context)
+    {
+        if (buf == null)
+        {
+            return ParseStatus.EMPTY.packed();
+        }
+        ParseScratch scratch = SCRATCH.get();
+        CharArraySequence chars = scratch.chars.set(buf, offset, length);
+        try
+        {
+            return ParsePacked(config, chars, 0, length, context.getBasisYear(), context.getBasisMonth(), scratch);
+        }
+        finally
+        {
+            chars.clear();
+        }
+    }
+
+    /**
+     * 配列の値をまとめてパースする。基準値と作業領域は1回だけ用意し、直前と同じ文字列は直前の結果を使う。
+     * @param src パースする文字列の配列(null の要素は EMPTY)
+     * @param outPacked src と同じ位置に yyyymmdd を書き込む。パースできない場合は負の値(ParseStatus.packed())。時刻は書き込まない
+     * @param outStatus src と同じ位置に ParseStatus.getCode() を書き込む。不要な場合は null
+     * @param context パースの基準値
+     * @return 成功・失敗の件数
+     */
+    public static ParseBatchResult parseAll(CharSequence[] src, int[] outPacked, byte[] outStatus, ParseContext context)
+    {
+        return DEFAULT.parseBatch(src, outPacked, outStatus, context);
+    }
+
+    /**
+     * List の値をまとめてパースする。
+     * @see #parseAll(CharSequence[], int[], byte[], ParseContext)
+     */
+    public static ParseBatchResult parseAll(List<? extends CharSequence> src, int[] outPacked, byte[] outStatus, ParseContext context)
+    {
+        return DEFAULT.parseBatch(src, outPacked, outStatus, context);
+    }
+
+    /**
+     * 先頭から順に値をまとめてパースする。outPacked と outStatus の先頭から順に書き込む。
+     * @throws IllegalArgumentException 値の数が outPacked(outStatus)の長さより多い場合
+     * @see #parseAll(CharSequence[], int[], byte[], ParseContext)
+     */
+    public static ParseBatchResult parseAll(Iterable<? extends CharSequence> src, int[] outPacked, byte[] outStatus, ParseContext context)
+    {
+        return DEFAULT.parseBatch(src, outPacked, outStatus, context);
+    }
+
+    /**
+     * 配列の値をまとめてパースする。parseAll と同じだが、このインスタンスの設定を使う。
+     * @see #parseAll(CharSequence[], int[], byte[], ParseContext)
+     */
+    public ParseBatchResult parseBatch(CharSequence[] src, int[] outPacked, byte[] outStatus, ParseContext context)
+    {
+        return parseBatch(src, outPacked, outStatus, context, null);
+    }
+
+    /**
+     * 配列の値をまとめてパースする。直前と同じでない文字列は cache を引き、キャッシュにない場合だけパースする。
+     * キャッシュのキーを作る作業領域はバッチの開始時に1回だけ取得する。
+     * @param cache このインスタンスの前に置いたキャッシュ(ParseCache.getParser() がこのインスタンス)。使わない場合は null
+     * @throws IllegalArgumentException cache が別の DateParser のキャッシュの場合
+     * @see #parseAll(CharSequence[], int[], byte[], ParseContext)
+     */
+    public ParseBatchResult parseBatch(CharSequence[] src, int[] outPacked, byte[] outStatus, ParseContext context, ParseCache cache)
+    {
+        CheckOutputLength(src.length, outPacked, outStatus);
+        CheckCache(cache);
+        Batch batch = new Batch(config, context, outPacked, outStatus, SCRATCH.get(), cache);
+        for (int i = 0; i < src.length; i++)
+        {
+            batch.parse(i, src[i]);
+        }
+        return new ParseBatchResult(batch.statusCounts);
+    }
+
+    /**
+     * List の値をまとめてパースする。parseAll と同じだが、このインスタンスの設定を使う。
+     * @see #parseAll(CharSequence[], int[], byte[], ParseContext)
+     */
+    public ParseBatchResult parseBatch(List<? extends CharSequence> src, int[] outPacked, byte[] outStatus, ParseContext context)
+    {
+        CheckOutputLength(src.size(), outPacked, outStatus);
+        return parseBatch((Iterable<? extends CharSequence>) src, outPacked, outStatus, context);
+    }
+
+    /**
+     * 先頭から順に値をまとめてパースする。parseAll と同じだが、このインスタンスの設定を使う。
+     * @see #parseAll(Iterable, int[], byte[], ParseContext)
+     */
+    public ParseBatchResult parseBatch(Iterable<? extends CharSequence> src, int[] outPacked, byte[] outStatus, ParseContext context)
+    {
+        return parseBatch(src, outPacked, outStatus, context, null);
+    }
+
+    /**
+     * 先頭から順に値をまとめてパースする。直前と同じでない文字列は cache を引く。
+     * @param cache このインスタンスの前に置いたキャッシュ。使わない場合は null
+     * @see #parseBatch(CharSequence[], int[], byte[], ParseContext, ParseCache)
+     */
+    public ParseBatchResult parseBatch(Iterable<? extends CharSequence> src, int[] outPacked, byte[] outStatus, ParseContext context,
+            ParseCache cache)
+    {
+        CheckCache(cache);
+        Batch batch = new Batch(config, context, outPacked, outStatus, SCRATCH.get(), cache);
+        int index = 0;
+        for (CharSequence value : src)
+        {
+            if (index >= outPacked.length || (outStatus != null && index >= outStatus.length))
+            {
+                throw new IllegalArgumentException("結果を書き込む配列が値の数より短いです: " + outPacked.length);
+            }
+            batch.parse(index++, value);
+        }
+        return new ParseBatchResult(batch.statusCounts);
+    }
+
+    /**
+     * 配列の値を ForkJoinPool.commonPool() で並列にまとめてパースする。
+     * @see #parseAllParallel(CharSequence[], int[], byte[], ParseContext, int, int)
+     */
+    public static ParseBatchResult parseAllParallel(CharSequence[] src, int[] outPacked, byte[] outStatus, ParseContext context)
+    {
+        return DEFAULT.parseBatchParallel(src, outPacked, outStatus, context, ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * 配列の値を並列にまとめてパースする。配列を fork/join のタスクに分割し、各タスクは担当する範囲の結果を
+     * outPacked と outStatus の同じ位置に書き込む。作業領域はタスクの開始時にワーカーのものを1回だけ取得する。
+     * @param parallelism 並列数(1以上)
+     * @param sequentialCutoff これ以下の件数は分割せずに1つのタスクでパースする(1以上)
+     * @see #parseAll(CharSequence[], int[], byte[], ParseContext)
+     */
+    public static ParseBatchResult parseAllParallel(CharSequence[] src, int[] outPacked, byte[] outStatus, ParseContext context,
+            int parallelism, int sequentialCutoff)
+    {
+        return DEFAULT.parseBatchParallel(src, outPacked, outStatus, context, parallelism, sequentialCutoff);
+    }
+
+    /**
+     * 配列の値を並列にまとめてパースする。parseAllParallel と同じだが、このインスタンスの設定を使う。
+     * @see #parseAllParallel(CharSequence[], int[], byte[], ParseContext, int, int)
+     */
+    public ParseBatchResult parseBatchParallel(CharSequence[] src, int[] outPacked, byte[] outStatus, ParseContext context,
+            int parallelism, int sequentialCutoff)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("並列数は1以上で指定してください: " + parallelism);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            return parseBatchParallel(src, outPacked, outStatus, context, pool, sequentialCutoff);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 配列の値を指定した ForkJoinPool で並列にまとめてパースする。
+     * @see #parseAllParallel(CharSequence[], int[], byte[], ParseContext, int, int)
+     */
+    public ParseBatchResult parseBatchParallel(CharSequence[] src, int[] outPacked, byte[] outStatus, ParseContext context,
+            ForkJoinPool pool, int sequentialCutoff)
+    {
+        if (sequentialCutoff < 1)
+        {
+            throw new IllegalArgumentException("分割しない件数は1以上で指定してください: " + sequentialCutoff);
+        }
+        CheckOutputLength(src.length, outPacked, outStatus);
+        return new ParseBatchResult(pool.invoke(new ParallelBatch(config, src, 0, src.length, outPacked, outStatus, context, sequentialCutoff)));
+    }
+
+    /**
+     * 曖昧な値の読み方の候補をすべて求める。「今」ではなく context を基準値とする。
+     * yyMMdd と yyyyMM、令和と20xx年 のように tryParse が1つを選ぶ値について、1回のパースで選ばれなかった読み方も返す。
+     * @param src パースする文字列
+     * @param context パースの基準値。候補の距離(ParseCandidates.getScore)もこの年月から求める
+     * @return 候補。先頭は tryParse が選ぶ読み方
+     */
+    public static ParseCandidates parseCandidates(CharSequence src, ParseContext context)
     {
+        return DEFAULT.candidates(src, context);
     }
 
-    public static DateTime Parse(String src) throws Exception
+    /**
+     * 曖昧な値の読み方の候補をすべて求める。parseCandidates と同じだが、このインスタンスの設定を使う。
+     * @see #parseCandidates(CharSequence, ParseContext)
+     */
+    public ParseCandidates candidates(CharSequence src, ParseContext context)
     {
-    	return Parse(src, null);
+        int basisYear = context.getBasisYear();
+        int basisMonth = context.getBasisMonth();
+        ParseScratch scratch = SCRATCH.get();
+        CandidateRecorder recorder = scratch.candidates;
+        recorder.start();
+        int selected;
+        try
+        {
+            selected = ParsePacked(config, src, basisYear, basisMonth, scratch);
+        }
+        finally
+        {
+            recorder.recording = false;
+        }
+        ParseCandidates.Builder builder = new ParseCandidates.Builder();
+        for (int i = 0; i < recorder.count; i++)
+        {
+            AddCandidates(config, recorder, i, basisYear, builder);
+        }
+        recorder.clear();
+        return builder.build(selected, basisYear, basisMonth);
     }
-    
-	/**
-	 * 日付をパースする。
-     * @param src パースする文字列
-     * @param basisDate パースする際に参考にされる基準値。この日に近い日付が選択される。省略すると、「今」を基準値とする。
-	 * @throws Exception 
-	 */
-    public static DateTime Parse(String src, DateTime basisDate) throws Exception
+
+    /**
+     * 記録した読み方を検証して候補に追加する。年号のない2桁の年は、令和と20xx年の両方を追加する
+     */
+    private static void AddCandidates(ParserConfig config, CandidateRecorder recorder, int index, int basisYear, ParseCandidates.Builder builder)
+    {
+        int year = recorder.years[index];
+        int month = recorder.months[index];
+        int day = recorder.days[index];
+        GengoYearTable gengo = recorder.gengos[index];
+        int era = recorder.eras[index];
+        int flags = recorder.flags[index];
+        if (gengo == null && !recorder.hasEnglishMonth && year >= 0 && year < 100 && !config.isYearInRange(year))
+        {
+            builder.add(Finalize(config, year + 2000, month, day, null, era, recorder.hasMatsujitsu, false, basisYear),
+                    flags | ParseCandidates.SEIREKI_2000S);
+            builder.add(Finalize(config, year, month, day, GengoYearTable.REIWA, era, recorder.hasMatsujitsu, false, basisYear),
+                    flags | ParseCandidates.REIWA_OMITTED);
+            return;
+        }
+        builder.add(Finalize(config, year, month, day, gengo, era, recorder.hasMatsujitsu, recorder.hasEnglishMonth, basisYear), flags);
+    }
+
+    private static void CheckOutputLength(int count, int[] outPacked, byte[] outStatus)
+    {
+        if (outPacked.length < count || (outStatus != null && outStatus.length < count))
+        {
+            throw new IllegalArgumentException("結果を書き込む配列が値の数より短いです: " + count);
+        }
+    }
+
+    /**
+     * キャッシュがこのインスタンスの前に置いたものか確認する(別の設定のパース結果を混ぜない)
+     */
+    private void CheckCache(ParseCache cache)
+    {
+        if (cache != null && cache.getParser() != this)
+        {
+            throw new IllegalArgumentException("別の DateParser のキャッシュは使えません");
+        }
+    }
+
+    /**
+     * @return yyyymmdd。パースできない場合は ParseStatus.packed()
+     */
+    private static int ParsePacked(ParserConfig config, CharSequence src, int basisYear, int basisMonth, ParseScratch scratch)
     {
         if (src == null)
         {
-        	throw new IllegalArgumentException("failed to parse dateString");
+            return ParseStatus.EMPTY.packed();
         }
+        return ParsePacked(config, src, 0, src.length(), basisYear, basisMonth, scratch);
+    }
+
+    /**
+     * @return yyyymmdd。パースできない場合は ParseStatus.packed()
+     */
+    private static int ParsePacked(ParserConfig config, CharSequence src, int start, int end, int basisYear, int basisMonth, ParseScratch scratch)
+    {
         try
         {
-            DateTime parsed = ParseInner(src, basisDate);
-            if (parsed == null)
-            {
-                throw new FormatException(src + " is not parsable");
-            }
-            return (DateTime)parsed;
+            return ParseInner(config, src, start, end, basisYear, basisMonth, scratch);
         }
-        catch (Exception e)
+        catch (RuntimeException e)
         {
-            throw new FormatException(src + " is not parsable", e);
+            return ParseStatus.UNRECOGNIZED.packed();
         }
     }
 
-    private static DateTime ParseInner(String src, DateTime basisDate)
+    /**
+     * @param start 開始位置
+     * @param end 終了位置(この位置の文字は含まない)
+     * @return yyyymmdd。パースできない場合は ParseStatus.packed()。時刻付きの場合は scratch に時刻も設定する
+     */
+    private static int ParseInner(ParserConfig config, CharSequence src, int start, int end, int basisYear, int basisMonth, ParseScratch scratch)
     {
-        if (AIReadEEUtil.isNullOrEmpty(src))
+        scratch.hasTime = false;
+        if (start == end)
         {
-            return null;
+            return ParseStatus.EMPTY.packed();
+        }
+        // 英字の小文字化、全角→半角、漢数字→数字の置換(範囲を直接読むので、部分文字列は作成しない)
+        FullToHalfNormalizer normalizer = scratch.normalizer(config.normalizerTable);
+        normalizer.normalize(src, start, end);
+        return ParseNormalized(config, normalizer, basisYear, basisMonth, scratch);
+    }
+
+    /**
+     * UTF-8 のバイト列の範囲をパースする。UTF-16 の文字列を作成せずに、正規化しながら読む
+     * @param end 終了位置(この位置のバイトは含まない)
+     * @return yyyymmdd。パースできない場合は ParseStatus.packed()。時刻付きの場合は scratch に時刻も設定する
+     */
+    private static int ParseUtf8(ParserConfig config, byte[] src, int start, int end, int basisYear, int basisMonth, ParseScratch scratch)
+    {
+        scratch.hasTime = false;
+        if (start == end)
+        {
+            return ParseStatus.EMPTY.packed();
+        }
+        FullToHalfNormalizer normalizer = scratch.normalizer(config.normalizerTable);
+        normalizer.normalizeUtf8(src, start, end);
+        return ParseNormalized(config, normalizer, basisYear, basisMonth, scratch);
+    }
+
+    /**
+     * 正規化済みの文字をパースする
+     * @return yyyymmdd。パースできない場合は ParseStatus.packed()。時刻付きの場合は scratch に時刻も設定する
+     */
+    private static int ParseNormalized(ParserConfig config, FullToHalfNormalizer normalizer, int basisYear, int basisMonth, ParseScratch scratch)
+    {
+        char[] buf = normalizer.buffer();
+        EnglishMonthInfo englishMonthInfo = scratch.englishMonthInfo;
+        int length = config.englishMonthRecognizer.replace(buf, normalizer.length(), englishMonthInfo);
+        boolean hasEnglishMonth = englishMonthInfo.isHasEnglishMonth();
+        int englishMonth = hasEnglishMonth ? MonthValue(englishMonthInfo.getMonth()) : 0;
+        int numberCountBeforeMonth = englishMonthInfo.getNumberCountBeforeMonth();
+        int numberCountAfterMonth = englishMonthInfo.getNumberCountAfterMonth();
+        int gengoIndex = config.gengoIndex.find(buf, length);
+        GengoYearTable gengo = gengoIndex < 0 ? null : config.gengoIndex.gengo(gengoIndex);
+        // 期間を確認するのは文字に書かれた年号だけ(省略を推定した令和は確認しない)
+        int era = gengoIndex < 0 ? GengoCalendar.NONE : config.gengoIndex.era(gengoIndex);
+        boolean hasMatsujitsu = HasMatsujitsu(buf, length);
+        if (scratch.candidates.recording)
+        {
+            scratch.candidates.setInput(era, hasMatsujitsu, hasEnglishMonth);
+        }
+        NumberTokenizer tokens = scratch.tokenizer;
+        // 年号の表記には数字がないので、表記の後ろから数字を切り出す
+        if (!tokens.tokenize(buf, gengoIndex < 0 ? 0 : config.gengoIndex.prefixLength(gengoIndex), length))
+        {
+            return ParseStatus.OUT_OF_RANGE.packed(); // int に収まらない数字
         }
-        src = ReplaceFullToHalf(src);
-        EnglishMonthInfo englishMonthInfo = new EnglishMonthInfo();
-        src = ReplaceEnglishMonthToNumber(src, englishMonthInfo);
-        GengoYearTable gengo = FindGengo(src);
-        boolean hasMatsujitsu = HasMatsujitsu(src);
-        NumberToken[] originalNumberTokensBeforeReadonly = TokenizeWithNumber(src);
 
-        NumberToken[] orderedNumberTokens;
+        int tokenCount = tokens.count();
+        int year;
+        int month;
+        int day;
 
-        if (originalNumberTokensBeforeReadonly.length == 0)
+        if (tokenCount == 0)
         {
-            return null;
+            return ParseStatus.NO_DIGITS.packed();
         }
-        else if (originalNumberTokensBeforeReadonly.length > 4)
+        else if (tokenCount > 4)
         {
             // maybe has time.
-            try
-            {
-                return DateTimeFormat.forPattern("yyyy/MM/dd HH:mm:ss.SSSSSS").parseDateTime(src);
-            }
-            catch (Exception e)
-            {
-                // after word is all null or empty
-            	boolean flg = true;
-            	for (NumberToken nt : originalNumberTokensBeforeReadonly) 
-            	{
-            		if (!AIReadEEUtil.isNullOrWhiteSpace(nt.afterWord))
-            		{
-            		    flg = false; // exist value
-                        break;
-                    }
-            	}
-            	if (flg)
-            	{
-                    String numberWordJoin = "";
-                    for (NumberToken nt : originalNumberTokensBeforeReadonly)
-                    {
-                        numberWordJoin += nt.tokenAsString;
-                    }
-                    originalNumberTokensBeforeReadonly = new NumberToken[] {
-                        new NumberToken(numberWordJoin) };
-            	}
-            	else
-            	{
-            		throw e;
-            	}
-            }
-        }
-        final NumberToken[] originalNumberTokens = originalNumberTokensBeforeReadonly;
-        if (originalNumberTokens.length == 1) // re-tokenize if length is 1
-        {
-            // pattern
-            // Constraint:
-            //   * year and month must be.
-            //   * year is 2 or 4 length. (I dont know 13year past and 78year later.)
-            //   * wareki is 1 or 2 length
-            // Length 2 eM
-            // Length 3 yyM eMd eeM eMM
-            // Length 4 yyMd yyMM eeMd eeMM eMMd eMdd → recognize yyMM or eeMM. caz its complicated.
-            // Length 5 yyyyM yyMMd yMMdd eeMMd eMMdd → recognize eMMdd. caz its complicated. if MM is not month. recognize eMMdd
-            // Length 6 yyyyMM yyyyMd, yyMMdd, eeMMdd → recognize yyyyMM, yyMMdd, eeMMdd. caz its complicated.
-            // Length 7 yyyyMMd yyyyMdd → recognize yyyyMMd
-            // Length 8 yyyyMMdd
-            String date = originalNumberTokens[0].tokenAsString;
-
-            if (date.length() == 2)
-            {
-                // mm(英語月の場合0パディングした2桁の数字のみ)
-                if (englishMonthInfo.isHasEnglishMonth())
-                {
-                    int suspectYear = GetNearYear(originalNumberTokens[0], IfNullNowOrAsis(basisDate));
-                    orderedNumberTokens = NumberToken.CreateArray(String.valueOf(suspectYear), date, hasMatsujitsu ? -1 : 1);
-                }
-                // eM
-                else
-                {
-                    orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 1), date.substring(1), hasMatsujitsu ? -1 : 1);
-                }
-            }
-            else if (date.length() == 3)
-            {
-                //eMM
-                String tmpDate = date;
-                if (englishMonthInfo.isHasEnglishMonth())
-                {
-                    //dataから月を除去した部分がeになる(英語月の場合0パディングした2桁の数字が含まれるため)
-                    tmpDate = date.replace(englishMonthInfo.getMonth(), "") + englishMonthInfo.getMonth();//月を後ろにつける
-                }
-                //yyM eMd eeM eMM
-                CalcStart3WordNenAndMonthByNearNowData calcStart3WordNenAndMonthByNearNowData = CalcStart3WordNenAndMonthByNearNow(tmpDate, gengo, basisDate);
-                GengoYearTable suspectGengo = calcStart3WordNenAndMonthByNearNowData.getSuspectGengo();
-                int nen = calcStart3WordNenAndMonthByNearNowData.getNen();
-                int month = calcStart3WordNenAndMonthByNearNowData.getMonth();
-                gengo = suspectGengo;
-                if (!IsCollectMonth(month))
-                {
-                    return null;
-                }
-                orderedNumberTokens = NumberToken.CreateArray(nen, month, DATE_NOTEXIST_SIGN);
-            }
-            else if (date.length() == 4)
+            int timestamp = ParseTimestamp(config, buf, length, scratch);
+            if (timestamp != NOT_TIMESTAMP)
             {
-                //yyMM or eeMM whtch? judge last sequence.
-                if (englishMonthInfo.isHasEnglishMonth())
-                {
-                    //dataから月を除去した部分がyyと仮定
-                    String exceptMonth = deleteStr(date, englishMonthInfo.getNumberCountBeforeMonth(), 2);
-                    orderedNumberTokens = NumberToken.CreateArray(exceptMonth, englishMonthInfo.getMonth(), DATE_NOTEXIST_SIGN);
-                }
-                else
-                {
-                    orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 2), date.substring(2, 4), DATE_NOTEXIST_SIGN);
-                }
+                return timestamp;
             }
-            else if (date.length() == 5)
+            // after word is all null or empty
+            for (int i = 0; i < tokenCount; i++)
             {
-                if (englishMonthInfo.isHasEnglishMonth())
-                {
-                    //dateから月を除去した部分がydd or yydと仮定
-                    String exceptMonth = deleteStr(date, englishMonthInfo.getNumberCountBeforeMonth(), 2);
-                    orderedNumberTokens = NumberToken.CreateArray(exceptMonth.substring(0, 1),
-                            englishMonthInfo.getMonth(), exceptMonth.substring(1, 3));
-                    if (!IsCollectDate(orderedNumberTokens[2], Integer.parseInt(englishMonthInfo.getMonth())))
-                    {   //suspect yyMMd
-                        orderedNumberTokens = NumberToken.CreateArray(exceptMonth.substring(0, 2),
-                                englishMonthInfo.getMonth(), exceptMonth.substring(2, 3));
-                        if (!IsCollectDate(orderedNumberTokens[2], Integer.parseInt(englishMonthInfo.getMonth())))
-                        {
-                            return null;
-                        }
-                    }
-                }
-                //eMMdd
-                else
+                if (!tokens.isAfterBlank(i))
                 {
-                    orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 1), date.substring(1, 3), date.substring(3, 5));
-                    if (!IsCollectMonth(orderedNumberTokens[1]))
-                    {   //suspect eeMMd
-                        orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 2), date.substring(2, 4), date.substring(4, 5));
-                        if (!IsCollectMonth(orderedNumberTokens[1]))
-                        {
-                            return null;
-                        }
-                    }
+                    return ParseStatus.UNRECOGNIZED.packed(); // exist value
                 }
             }
-            else if (date.length() == 6)
+        }
+        if (tokenCount == 1 || tokenCount > 4) // re-tokenize if length is 1. over 4 tokens are joined.
+        {
+            // 数字をつなげて、桁数と英語月・年号・末日の有無から形(DigitShapeTable)を決める
+            char[] date = scratch.digits(length);
+            int dateLength = 0;
+            for (int i = 0; i < tokenCount; i++)
             {
-                //yyyyMM, yyMMdd, eeMMdd
-                if (gengo != null)
-                {
-                    //yyMMdd
-                    if (englishMonthInfo.isHasEnglishMonth())
-                    {
-                        //dataから月を除去した部分がyyddと仮定
-                        String exceptMonth = deleteStr(date, englishMonthInfo.getNumberCountBeforeMonth(), 2);
-                        orderedNumberTokens = NumberToken.CreateArray(exceptMonth.substring(0, 2),
-                                englishMonthInfo.getMonth(), exceptMonth.substring(2, 4));
-                    }
-                    else
-                    {
-                        orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 2), date.substring(2, 4), date.substring(4, 6));
-                    }
-                }
-                else //(gengo == null)
-                {
-                    if (hasMatsujitsu)
-                    {
-                        //yyyyMM
-                        if (englishMonthInfo.isHasEnglishMonth())
-                        {
-                            //dataから月を除去した部分がyyyyと仮定
-                            String exceptMonth = deleteStr(date, englishMonthInfo.getNumberCountBeforeMonth(), 2);
-                            orderedNumberTokens = NumberToken.CreateArray(exceptMonth, englishMonthInfo.getMonth(), DATE_MATSUJITU_SIGN);
-                        }
-                        else
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 4), date.substring(4, 6), DATE_MATSUJITU_SIGN);
-                        }
-                    }
-                    else
-                    {
-                        if (englishMonthInfo.isHasEnglishMonth())
-                        {
-                            String exceptMonth = deleteStr(date, englishMonthInfo.getNumberCountBeforeMonth(), 2);
-                            int twoWordNen = Integer.parseInt(exceptMonth.substring(0, 2));
-                            int fourWordNen = Integer.parseInt(exceptMonth.substring(0, 4));
-                            if (IsNearYearNowThan(twoWordNen + 2000, fourWordNen, basisDate) ||
-                                    IsNearYearNowThan(twoWordNen + GengoYearTable.REIWA_YEAR_ADDITION, fourWordNen, basisDate))
-                            {
-                                //yyMMdd
-                                orderedNumberTokens = NumberToken.CreateArray(exceptMonth.substring(0, 2),
-                                        englishMonthInfo.getMonth(), exceptMonth.substring(2, 4));
-                            }
-                            else
-                            {
-                                //yyyyMM
-                                orderedNumberTokens = NumberToken.CreateArray(exceptMonth.substring(0, 4),
-                                        englishMonthInfo.getMonth(), DATE_NOTEXIST_SIGN);
-                            }
-                        }
-                        else
-                        {
-                            int twoWordNen = Integer.parseInt(date.substring(0, 2));
-                            int fourWordNen = Integer.parseInt(date.substring(0, 4));
-                            if (IsNearYearNowThan(twoWordNen + 2000, fourWordNen, basisDate) ||
-                                    IsNearYearNowThan(twoWordNen + GengoYearTable.REIWA_YEAR_ADDITION, fourWordNen, basisDate))
-                            {
-                                //yyMMdd, eeMMdd
-                                orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 2),
-                                        date.substring(2, 4), date.substring(4, 6));
-                            }
-                            else
-                            {
-                                //yyyyMM
-                                orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 4),
-                                        date.substring(4, 6), DATE_NOTEXIST_SIGN);
-                            }
-                        }
-                    }
-                }
+                dateLength = CopyDigits(buf, tokens.start(i), tokens.end(i), date, dateLength);
             }
-            else if (date.length() == 7) // recognize to be yyyyMMd
+            if (ParseDigits(date, dateLength, 0, dateLength) == PARSE_ERROR)
             {
-                if (englishMonthInfo.isHasEnglishMonth())
-                {
-                    //yyyyMMd or dMMyyyyと仮定 月の前後の文字数から年か日と仮定(4文字が年、1文字が日)
-                    if ((englishMonthInfo.getNumberCountBeforeMonth() == 4 && englishMonthInfo.getNumberCountAfterMonth() == 1)
-                            || (englishMonthInfo.getNumberCountBeforeMonth() == 1 && englishMonthInfo.getNumberCountAfterMonth() == 4))
-                    {
-                        if (englishMonthInfo.getNumberCountBeforeMonth() == 4)
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 4),
-                                    englishMonthInfo.getMonth(), date.substring(6));
-                        }
-                        else
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(3, 7),
-                                    englishMonthInfo.getMonth(), date.substring(0, 1));
-                        }
-                    }
-                    //yyyydMM or MMyyyydと仮定
-                    else if (englishMonthInfo.getNumberCountBeforeMonth() == 5 || englishMonthInfo.getNumberCountAfterMonth() == 5)
-                    {
-                        if (englishMonthInfo.getNumberCountBeforeMonth() == 5)
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 4),
-                                    englishMonthInfo.getMonth(), date.substring(4, 5));
-                        }
-                        else
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(2, 6),
-                                    englishMonthInfo.getMonth(), date.substring(6, 7));
-                        }
-                    }
-                    else
-                    {
-                        return null; //認識できない
-                    }
-                }
-                else
-                {
-                    orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 4), date.substring(4, 6), date.substring(6));
-                }
+                return ParseStatus.OUT_OF_RANGE.packed(); // 連結した数字が int に収まらない
             }
-            else if (date.length() == 8) // recognize to be yyyyMMdd
+            DigitShapeTable.Shape shape = DigitShapeTable.DEFAULT.find(dateLength,
+                    DigitShapeTable.Flags(hasEnglishMonth, gengo != null, hasMatsujitsu));
+            if (shape == null)
             {
-                if (englishMonthInfo.isHasEnglishMonth())
-                {
-                    //月が間(yyyyMMdd or ddMMyyyy)と仮定
-                    if ((englishMonthInfo.getNumberCountBeforeMonth() == 4 && englishMonthInfo.getNumberCountAfterMonth() == 2)
-                            || (englishMonthInfo.getNumberCountBeforeMonth() == 2 && englishMonthInfo.getNumberCountAfterMonth() == 4))
-                    {
-                        if (englishMonthInfo.getNumberCountBeforeMonth() == 4)
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 4),
-                                    englishMonthInfo.getMonth(), date.substring(6, 8));
-                        }
-                        else
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(4, 8),
-                                    englishMonthInfo.getMonth(), date.substring(0, 2));
-                        }
-                    }
-                    //月が最後(yyyyddMM or ddyyyyMM)、もしくは月が前(MMyyyydd or MMddyyyy)と仮定
-                    else if (englishMonthInfo.getNumberCountBeforeMonth() == 6 || englishMonthInfo.getNumberCountAfterMonth() == 6)
-                    {
-                        if (englishMonthInfo.getNumberCountBeforeMonth() == 6)
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 4),
-                                    englishMonthInfo.getMonth(), date.substring(4, 6));
-                        }
-                        else
-                        {
-                            orderedNumberTokens = NumberToken.CreateArray(date.substring(2, 6),
-                                    englishMonthInfo.getMonth(), date.substring(6, 8));
-                        }
-                    }
-                    else
-                    {
-                        return null; //認識できない
-                    }
-                }
-                else
-                {
-                    orderedNumberTokens = NumberToken.CreateArray(date.substring(0, 4), date.substring(4, 6), date.substring(6));
-                }
+                return ParseStatus.UNRECOGNIZED.packed();
             }
-            else // never. For compiler, show month and day must be initialized.
+            int status = ApplyShape(shape, date, dateLength, scratch.work(dateLength + 2), englishMonthInfo, englishMonth, gengo,
+                    basisYear, basisMonth, scratch);
+            if (status != 0)
             {
-                return null;
+                return status;
             }
+            year = scratch.year;
+            month = scratch.month;
+            day = scratch.day;
+            gengo = scratch.gengo;
         }
-        else if (originalNumberTokens.length == 2) // if has matsujitu, yyyy MM or e MM.[yyyy, MM] or [MM, dd], or joined like [yyyyMM dd], [yyyy MMdd]?
+        else if (tokenCount == 2) // if has matsujitu, yyyy MM or e MM.[yyyy, MM] or [MM, dd], or joined like [yyyyMM dd], [yyyy MMdd]?
         {
-            NumberToken firstNumberToken = originalNumberTokens[0];
-            NumberToken secondNumberToken = originalNumberTokens[1];
+            char[] first = scratch.digits(length + 2);
+            int firstLength = CopyDigits(buf, tokens.start(0), tokens.end(0), first, 0);
+            int firstValue = tokens.value(0);
+            boolean firstHasAfterMonth = tokens.hasAfter(0, '月');
+            char[] second = scratch.work(length + 2);
+            int secondLength = CopyDigits(buf, tokens.start(1), tokens.end(1), second, 0);
+            int secondValue = tokens.value(1);
+            boolean secondHasAfterDay = tokens.hasAfter(1, '日');
 
-            if (englishMonthInfo.isHasEnglishMonth())
+            if (hasEnglishMonth)
             {
                 //1つ目の配列に月がある場合は最後につける　MM or yyyyMMを想定
-                if (englishMonthInfo.getNumberCountBeforeMonth() < firstNumberToken.tokenAsString.length())
+                if (numberCountBeforeMonth < firstLength)
                 {
-                    firstNumberToken = new NumberToken(deleteStr(firstNumberToken.tokenAsString,
-                            englishMonthInfo.getNumberCountBeforeMonth(), 2) + englishMonthInfo.getMonth());
+                    firstLength = MoveMonth(first, firstLength, numberCountBeforeMonth, englishMonthInfo.getMonth(), false);
+                    firstValue = ParseDigits(first, firstLength, 0, firstLength);
+                    firstHasAfterMonth = false;
                 }
                 //2つ目の配列に月がある場合は前につける　MM or MMdd
                 else
                 {
-                    secondNumberToken = new NumberToken(englishMonthInfo.getMonth() + deleteStr(secondNumberToken.tokenAsString,
-                            englishMonthInfo.getNumberCountBeforeMonth() - firstNumberToken.tokenAsString.length(), 2));
+                    secondLength = MoveMonth(second, secondLength, numberCountBeforeMonth - firstLength, englishMonthInfo.getMonth(), true);
+                    secondValue = ParseDigits(second, secondLength, 0, secondLength);
+                    secondHasAfterDay = false;
+                }
+                if (firstValue == PARSE_ERROR || secondValue == PARSE_ERROR)
+                {
+                    return ParseStatus.UNRECOGNIZED.packed();
                 }
             }
 
             if (hasMatsujitsu)
             {
-                orderedNumberTokens = NumberToken.CreateArray(firstNumberToken, secondNumberToken, DATE_MATSUJITU_SIGN);
+                year = firstValue;
+                month = secondValue;
+                day = DATE_MATSUJITU_SIGN;
             }
             //check length
-            else if (gengo == null && firstNumberToken.token >= 10000)// may be year and month is join.
+            else if (gengo == null && firstValue >= 10000)// may be year and month is join.
             {
-                String yearAndMonthJoined = firstNumberToken.tokenAsString;
-                orderedNumberTokens = NumberToken.CreateArray(yearAndMonthJoined.substring(0, 4), yearAndMonthJoined.substring(4), secondNumberToken);
+                year = ParseDigits(first, firstLength, 0, 4);
+                month = ParseDigits(first, firstLength, 4, firstLength);
+                day = secondValue;
             }
-            else if (gengo != null && firstNumberToken.token >= 100)// may be year and month is join.
+            else if (gengo != null && firstValue >= 100)// may be year and month is join.
             {
-                String yearAndMonthJoined = firstNumberToken.tokenAsString;
-                orderedNumberTokens = NumberToken.CreateArray(yearAndMonthJoined.substring(0, 1), yearAndMonthJoined.substring(1), secondNumberToken);
+                year = ParseDigits(first, firstLength, 0, 1);
+                month = ParseDigits(first, firstLength, 1, firstLength);
+                day = secondValue;
             }
-            else if (secondNumberToken.token >= 100)// MMdd is joined.
+            else if (secondValue >= 100)// MMdd is joined.
             {
-                String yearAndMonthJoined = secondNumberToken.tokenAsString;
-                orderedNumberTokens = NumberToken.CreateArray(firstNumberToken, yearAndMonthJoined.substring(0, 2), yearAndMonthJoined.substring(2));
+                year = firstValue;
+                month = ParseDigits(second, secondLength, 0, 2);
+                day = ParseDigits(second, secondLength, 2, secondLength);
             }
             else // may be not join. and recognize "ついたち" is omitted.
             {
                 if (gengo != null)// must be yy MM.
                 {
-                    orderedNumberTokens = NumberToken.CreateArray(firstNumberToken, secondNumberToken, 1);
+                    year = firstValue;
+                    month = secondValue;
+                    day = DATE_NOTEXIST_SIGN;
                 }
                 else
                 {
-                    if (IsCollectYear(firstNumberToken) && !src.contains("日"))// must be yyyy MM. if contains 「日」, it must have date.
+                    if (config.isYearInRange(firstValue) && !Contains(buf, length, '日'))// must be yyyy MM. if contains 「日」, it must have date.
                     {
-                        orderedNumberTokens = NumberToken.CreateArray(firstNumberToken, secondNumberToken, 1);
+                        year = firstValue;
+                        month = secondValue;
+                        day = 1;
                     }
-                    else if ((firstNumberToken.HasAfter("月") && secondNumberToken.HasAfter("日")) ||
-                            (IsCollectMonth(firstNumberToken) && !src.contains("年"))) // may be MM dd. if contains 「年」, it must have year.
+                    else if ((firstHasAfterMonth && secondHasAfterDay) ||
+                            (DateValidator.isValidMonth(firstValue) && !Contains(buf, length, '年'))) // may be MM dd. if contains 「年」, it must have year.
                     {
-                        int suspectYear = GetNearYear(firstNumberToken, IfNullNowOrAsis(basisDate));
-                        orderedNumberTokens = NumberToken.CreateArray(suspectYear, firstNumberToken, secondNumberToken);
+                        year = GetNearYear(firstValue, basisYear, basisMonth);
+                        month = firstValue;
+                        day = secondValue;
                     }
                     else
                     {
-                        return null;
+                        return ParseStatus.AMBIGUOUS.packed();
                     }
                 }
             }
         }
-        else if (originalNumberTokens.length == 3)// [yyyy, MM, dd] or [MM, dd, yyyy] or ([ee, MM, dd] with gengo)
+        else if (tokenCount == 3)// [yyyy, MM, dd] or [MM, dd, yyyy] or ([ee, MM, dd] with gengo)
         {
-            if (englishMonthInfo.isHasEnglishMonth())
+            if (hasEnglishMonth)
             {
-                NumberToken year = new NumberToken();
-                NumberToken month = new NumberToken();
-                NumberToken date = new NumberToken();
+                int yearIndex;
+                int monthIndex;
+                int dateIndex;
 
                 //月が先頭の配列　MM yyyy dd or MM dd yyyyと仮定
-                if (englishMonthInfo.getNumberCountBeforeMonth() < originalNumberTokens[0].tokenAsString.length() &&
-                        originalNumberTokens[0].tokenAsString.length() == 2)
+                if (numberCountBeforeMonth < tokens.digitLength(0) && tokens.digitLength(0) == 2)
                 {
-                    month = originalNumberTokens[0];
+                    monthIndex = 0;
                     //残りの2配列で4桁のものを年にする。無ければ先の配列を年にする
-                    if (originalNumberTokens[2].tokenAsString.length() == 4)
+                    if (tokens.digitLength(2) == 4)
                     {
-                        year = originalNumberTokens[2];
-                        date = originalNumberTokens[1];
+                        yearIndex = 2;
+                        dateIndex = 1;
                     }
                     else
                     {
-                        year = originalNumberTokens[1];
-                        date = originalNumberTokens[2];
+                        yearIndex = 1;
+                        dateIndex = 2;
                     }
                 }
                 //月が2番目　yyyy MM dd or dd MM yyyyと仮定
-                else if (englishMonthInfo.getNumberCountBeforeMonth() < (originalNumberTokens[0].tokenAsString.length() +
-                        originalNumberTokens[1].tokenAsString.length()) && originalNumberTokens[1].tokenAsString.length() == 2)
+                else if (numberCountBeforeMonth < (tokens.digitLength(0) + tokens.digitLength(1)) && tokens.digitLength(1) == 2)
                 {
-                    month = originalNumberTokens[1];
+                    monthIndex = 1;
                     //残りの2配列で4桁のものを年にする。無ければ先の配列を年にする
-                    if (originalNumberTokens[2].tokenAsString.length() == 4)
+                    if (tokens.digitLength(2) == 4)
                     {
-                        year = originalNumberTokens[2];
-                        date = originalNumberTokens[0];
+                        yearIndex = 2;
+                        dateIndex = 0;
                     }
                     else
                     {
-                        year = originalNumberTokens[0];
-                        date = originalNumberTokens[2];
+                        yearIndex = 0;
+                        dateIndex = 2;
                     }
                 }
                 //月が最後 yyyy dd MM or dd yyyy MMと仮定
-                else if (originalNumberTokens[2].tokenAsString.length() == 2)
+                else if (tokens.digitLength(2) == 2)
                 {
-                    month = originalNumberTokens[2];
+                    monthIndex = 2;
                     //残りの2配列で4桁のものを年にする。無ければ先の配列を年にする
-                    if (originalNumberTokens[1].tokenAsString.length() == 4)
+                    if (tokens.digitLength(1) == 4)
                     {
-                        year = originalNumberTokens[1];
-                        date = originalNumberTokens[0];
+                        yearIndex = 1;
+                        dateIndex = 0;
                     }
                     else
                     {
-                        year = originalNumberTokens[0];
-                        date = originalNumberTokens[1];
+                        yearIndex = 0;
+                        dateIndex = 1;
                     }
                 }
                 else
                 {
-                    return null; ////月が他の数字と結合されており不明
+                    return ParseStatus.AMBIGUOUS.packed(); ////月が他の数字と結合されており不明
                 }
-                orderedNumberTokens = NumberToken.CreateArray(year, month, date);
+                year = tokens.value(yearIndex);
+                month = tokens.value(monthIndex);
+                day = tokens.value(dateIndex);
             }
             else
             {
                 // recognize which index 0 or index 2 is year.
-                if (gengo == null && !IsCollectYear(originalNumberTokens[0]) && IsCollectYear(originalNumberTokens[2]))
+                if (gengo == null && !config.isYearInRange(tokens.value(0)) && config.isYearInRange(tokens.value(2)))
                 {
-                    orderedNumberTokens = NumberToken.CreateArray(originalNumberTokens[2], originalNumberTokens[0], originalNumberTokens[1]);
+                    year = tokens.value(2);
+                    month = tokens.value(0);
+                    day = tokens.value(1);
                 }
                 else
                 {
                     //yyyyMMdd
-                    orderedNumberTokens = NumberToken.CreateArray(originalNumberTokens[0], originalNumberTokens[1], originalNumberTokens[2]);
+                    year = tokens.value(0);
+                    month = tokens.value(1);
+                    day = tokens.value(2);
+                }
+            }
+        }
+        else // tokenCount == 4 [yyyy, MM, dd] and somethere separated.
+        {
+            if (gengo != null)
+            {
+                // because I have no idea which part are separated.
+                return ParseStatus.AMBIGUOUS.packed();
+            }
+            int firstIndex = 0; //yy
+            int secondIndex = 1; //yy
+            int thirdIndex = 2; //MM
+            int forthIndex = 3; //dd
+
+            // [yy yy MM dd]?
+            if (hasEnglishMonth)
+            {
+                //3番目が月かつ2桁
+                if (numberCountBeforeMonth >= (tokens.digitLength(0) + tokens.digitLength(1))
+                        && numberCountBeforeMonth < (tokens.digitLength(0) + tokens.digitLength(1) + tokens.digitLength(2))
+                        && tokens.digitLength(2) == 2)
+                {
+                    //並び通り、何もしない。
+                }
+                //2番目が月かつ2桁
+                else if (numberCountBeforeMonth >= tokens.digitLength(0)
+                        && numberCountBeforeMonth < (tokens.digitLength(0) + tokens.digitLength(1))
+                        && tokens.digitLength(1) == 2)
+                {
+                    //[dd MM yy yy]と仮定し月と日を入れ替える
+                    firstIndex = 2;
+                    secondIndex = 3;
+                    thirdIndex = 1;
+                    forthIndex = 0;
+                }
+                else
+                {
+                    return ParseStatus.AMBIGUOUS.packed();
                 }
             }
+            int yearCandidate = JoinDigits(buf, tokens, firstIndex, secondIndex);
+            if (yearCandidate != PARSE_ERROR && tokens.isAfterBlank(firstIndex) && config.isYearInRange(yearCandidate))
+            {
+                year = yearCandidate;
+                month = tokens.value(thirdIndex);
+                day = tokens.value(forthIndex);
+            }
+            else
+            {
+                return ParseStatus.UNRECOGNIZED.packed();
+            }
+        }
+
+        // finalize
+        if (scratch.candidates.recording)
+        {
+            scratch.candidates.record(year, month, day, gengo, era, gengo != null && gengoIndex < 0 ? ParseCandidates.REIWA_OMITTED : 0);
+        }
+        return Finalize(config, year, month, day, gengo, era, hasMatsujitsu, hasEnglishMonth, basisYear);
+    }
+
+    /**
+     * 年・月・日を検証して yyyymmdd にする。年号があれば西暦にし、年号のない2桁の年は基準値に近い令和または20xx年にする
+     * @param era 期間を確認する年号。確認しない場合は GengoCalendar.NONE
+     * @return yyyymmdd。検証できない場合は ParseStatus.packed()
+     */
+    private static int Finalize(ParserConfig config, int year, int month, int day, GengoYearTable gengo, int era,
+            boolean hasMatsujitsu, boolean hasEnglishMonth, int basisYear)
+    {
+        if (year == PARSE_ERROR || month == PARSE_ERROR || day == PARSE_ERROR)
+        {
+            return ParseStatus.UNRECOGNIZED.packed();
+        }
+        if (gengo != null)
+        {
+            year = year + gengo.yearAdd;
+        }
+        else if (!config.isYearInRange(year) && 100 > year)// suspect "令和" is omitted. or YYyy's YY is ommited.
+        {
+            if (hasEnglishMonth)
+            {
+                //英語月が含まれる場合の年の桁不足は西暦として扱う
+                year = year + 2000;
+            }
+            else {
+                year = CalcNealyYearFromWarekiOrYear(year, basisYear);
+            }
+            if (!config.isYearInRange(year))// validate.
+            {
+                return ParseStatus.OUT_OF_RANGE.packed();
+            }
+        }
+        if (!config.isYearInRange(year))
+        {
+            return ParseStatus.OUT_OF_RANGE.packed();
+        }
+        if (!DateValidator.isValidMonth(month))
+        {
+            return ParseStatus.BAD_MONTH.packed();
+        }
+        if (hasMatsujitsu || day == DATE_MATSUJITU_SIGN)
+        {
+            day = DateValidator.lengthOfMonth(year, month);
+        }
+        else if (day == DATE_NOTEXIST_SIGN || day == DATE_NOTSET_NOW_SIGN)
+        {
+            if (era != GengoCalendar.NONE && !GengoCalendar.containsMonth(era, year, month))
+            {
+                return ParseStatus.OUT_OF_ERA.packed();
+            }
+            day = 1;
+            era = GengoCalendar.NONE;// 日がない場合は月で確認済み
+        }
+
+        //validate
+        int packed = DateValidator.validate(year, month, day);
+        if (packed < 0)
+        {
+            return packed;
+        }
+        if (era != GengoCalendar.NONE && !GengoCalendar.contains(era, packed))
+        {
+            return ParseStatus.OUT_OF_ERA.packed();
+        }
+        return packed;
+    }
+
+    /**
+     * つなげた数字を形に当てはめて、年・月・日に分ける
+     * @param exceptMonth 英語月の数字を除いた数字を書き込む作業領域
+     * @return 0。分けられない場合は ParseStatus.packed()。年・月・日と年号は scratch に設定する
+     */
+    private static int ApplyShape(DigitShapeTable.Shape shape, char[] date, int dateLength, char[] exceptMonth,
+            EnglishMonthInfo englishMonthInfo, int englishMonth, GengoYearTable gengo, int basisYear, int basisMonth, ParseScratch scratch)
+    {
+        boolean hasEnglishMonth = englishMonthInfo.isHasEnglishMonth();
+        scratch.gengo = gengo;
+        if (shape.kind == DigitShapeTable.Kind.NEAR_ERA)
+        {
+            //eMM
+            char[] tmpDate = date;
+            int tmpDateLength = dateLength;
+            if (hasEnglishMonth)
+            {
+                //dataから月を除去した部分がeになる(英語月の場合0パディングした2桁の数字が含まれるため)
+                tmpDate = exceptMonth;
+                tmpDateLength = MoveMonthToLast(date, dateLength, englishMonthInfo.getMonth(), tmpDate);//月を後ろにつける
+            }
+            if (scratch.candidates.recording)
+            {
+                RecordNearEraCandidates(tmpDate, tmpDateLength, gengo, scratch.candidates);
+            }
+            //yyM eMd eeM eMM
+            CalcStart3WordNenAndMonthByNearNowData calcStart3WordNenAndMonthByNearNowData = CalcStart3WordNenAndMonthByNearNow(
+                    tmpDate, tmpDateLength, gengo, basisYear, scratch.calcStart3WordNenAndMonthByNearNowData);
+            if (calcStart3WordNenAndMonthByNearNowData == null)
+            {
+                return ParseStatus.UNRECOGNIZED.packed();
+            }
+            scratch.gengo = calcStart3WordNenAndMonthByNearNowData.getSuspectGengo();
+            scratch.year = calcStart3WordNenAndMonthByNearNowData.getNen();
+            scratch.month = calcStart3WordNenAndMonthByNearNowData.getMonth();
+            scratch.day = DATE_NOTEXIST_SIGN;
+            return DateValidator.isValidMonth(scratch.month) ? 0 : ParseStatus.BAD_MONTH.packed();
+        }
+
+        // 英語月の数字を除いた残りに当てはめる形
+        char[] digits = date;
+        int digitsLength = dateLength;
+        if (hasEnglishMonth && shape.isWithoutMonth())
+        {
+            digits = exceptMonth;
+            digitsLength = DeleteDigits(date, dateLength, englishMonthInfo.getNumberCountBeforeMonth(), 2, exceptMonth);
+        }
+        if (scratch.candidates.recording)
+        {
+            RecordLayoutCandidates(shape, digits, digitsLength, englishMonthInfo, englishMonth, gengo, basisYear, basisMonth, scratch);
+        }
+        if (shape.kind == DigitShapeTable.Kind.NEAR_YEAR)
+        {
+            DigitShapeTable.Layout twoWordNenLayout = shape.layout(0);
+            DigitShapeTable.Layout fourWordNenLayout = shape.layout(1);
+            int twoWordNen = ParseDigits(digits, digitsLength, twoWordNenLayout.yearStart, twoWordNenLayout.yearEnd);
+            int fourWordNen = ParseDigits(digits, digitsLength, fourWordNenLayout.yearStart, fourWordNenLayout.yearEnd);
+            if (twoWordNen == PARSE_ERROR || fourWordNen == PARSE_ERROR)
+            {
+                return ParseStatus.UNRECOGNIZED.packed();
+            }
+            if (IsNearYearNowThan(twoWordNen + 2000, fourWordNen, basisYear) ||
+                    IsNearYearNowThan(twoWordNen + GengoYearTable.REIWA_YEAR_ADDITION, fourWordNen, basisYear))
+            {
+                ApplyLayout(twoWordNenLayout, digits, digitsLength, hasEnglishMonth, englishMonth, basisYear, basisMonth, scratch);
+            }
+            else
+            {
+                ApplyLayout(fourWordNenLayout, digits, digitsLength, hasEnglishMonth, englishMonth, basisYear, basisMonth, scratch);
+            }
+            return 0;
+        }
+
+        boolean applied = false;
+        for (int i = 0; i < shape.layoutCount(); i++)
+        {
+            DigitShapeTable.Layout layout = shape.layout(i);
+            if (hasEnglishMonth && layout.hasMonth()
+                    && !layout.matchesMonthPosition(englishMonthInfo.getNumberCountBeforeMonth(), englishMonthInfo.getNumberCountAfterMonth()))
+            {
+                continue; // 英語月の位置が合わない
+            }
+            ApplyLayout(layout, digits, digitsLength, hasEnglishMonth, englishMonth, basisYear, basisMonth, scratch);
+            applied = true;
+            if (shape.check == DigitShapeTable.Check.NONE)
+            {
+                return 0;
+            }
+            if (i == 0 && (scratch.year == PARSE_ERROR || scratch.month == PARSE_ERROR || scratch.day == PARSE_ERROR))
+            {
+                return ParseStatus.UNRECOGNIZED.packed();
+            }
+            if (shape.check == DigitShapeTable.Check.MONTH ? DateValidator.isValidMonth(scratch.month) : DateValidator.isPossibleDay(scratch.day, scratch.month))
+            {
+                return 0;
+            }
+        }
+        if (!applied)
+        {
+            return ParseStatus.AMBIGUOUS.packed(); //認識できない
+        }
+        return shape.check == DigitShapeTable.Check.MONTH ? ParseStatus.BAD_MONTH.packed() : ParseStatus.BAD_DAY.packed();
+    }
+
+    /**
+     * 3桁の数字(yyM eMd eeM eMM)の、1桁の年と2桁の月、2桁の年と1桁の月の両方を候補に記録する
+     */
+    private static void RecordNearEraCandidates(char[] src, int length, GengoYearTable knownGengo, CandidateRecorder recorder)
+    {
+        if (length < 3)
+        {
+            return;
         }
-        else if (originalNumberTokens.length == 4)// [yyyy, MM, dd] and somethere separated.
+        int era = knownGengo == null ? GengoCalendar.NONE : recorder.era;
+        recorder.record(ParseDigits(src, length, 0, 1), ParseDigits(src, length, 1, 3), DATE_NOTEXIST_SIGN, knownGengo, era,
+                ParseCandidates.SPLIT_ALTERNATIVE);
+        recorder.record(ParseDigits(src, length, 0, 2), ParseDigits(src, length, 2, 3), DATE_NOTEXIST_SIGN, knownGengo, era,
+                ParseCandidates.SPLIT_ALTERNATIVE);
+    }
+
+    /**
+     * 形のすべての当てはめ方(英語月の位置が合うもの)を候補に記録する。scratch の年・月・日は上書きされる
+     */
+    private static void RecordLayoutCandidates(DigitShapeTable.Shape shape, char[] digits, int digitsLength, EnglishMonthInfo englishMonthInfo,
+            int englishMonth, GengoYearTable gengo, int basisYear, int basisMonth, ParseScratch scratch)
+    {
+        boolean hasEnglishMonth = englishMonthInfo.isHasEnglishMonth();
+        int era = gengo == null ? GengoCalendar.NONE : scratch.candidates.era;
+        for (int i = 0; i < shape.layoutCount(); i++)
         {
-            if (gengo != null)
+            DigitShapeTable.Layout layout = shape.layout(i);
+            if (hasEnglishMonth && layout.hasMonth()
+                    && !layout.matchesMonthPosition(englishMonthInfo.getNumberCountBeforeMonth(), englishMonthInfo.getNumberCountAfterMonth()))
             {
-                // because I have no idea which part are separated.
-                return null;
+                continue;
             }
-            else
-            {
-                NumberToken firstNumberToken = originalNumberTokens[0]; //yy
-                NumberToken secondNumberToken = originalNumberTokens[1]; //yy
-                NumberToken thirdNumberToken = originalNumberTokens[2]; //MM
-                NumberToken forthNumberToken = originalNumberTokens[3]; //dd
+            ApplyLayout(layout, digits, digitsLength, hasEnglishMonth, englishMonth, basisYear, basisMonth, scratch);
+            scratch.candidates.record(scratch.year, scratch.month, scratch.day, gengo, era, ParseCandidates.SPLIT_ALTERNATIVE);
+        }
+    }
 
-                // [yy yy MM dd]?
-                if (englishMonthInfo.isHasEnglishMonth())
-                {
-                    //3番目が月かつ2桁
-                    if (englishMonthInfo.getNumberCountBeforeMonth() >= (originalNumberTokens[0].tokenAsString.length() +
-                            originalNumberTokens[1].tokenAsString.length())
-                            && englishMonthInfo.getNumberCountBeforeMonth() < (originalNumberTokens[0].tokenAsString.length() +
-                            originalNumberTokens[1].tokenAsString.length() + originalNumberTokens[2].tokenAsString.length())
-                            && originalNumberTokens[2].tokenAsString.length() == 2)
-                    {
-                        //並び通り、何もしない。
-                    }
-                    //2番目が月かつ2桁
-                    else if (englishMonthInfo.getNumberCountBeforeMonth() >= (originalNumberTokens[0].tokenAsString.length())
-                            && englishMonthInfo.getNumberCountBeforeMonth() < (originalNumberTokens[0].tokenAsString.length() +
-                            originalNumberTokens[1].tokenAsString.length())
-                            && originalNumberTokens[1].tokenAsString.length() == 2)
-                    {
-                        //[dd MM yy yy]と仮定し月と日を入れ替える
-                        firstNumberToken = originalNumberTokens[2];
-                        secondNumberToken = originalNumberTokens[3];
-                        thirdNumberToken = originalNumberTokens[1];
-                        forthNumberToken = originalNumberTokens[0];
-                    }
-                    else
-                    {
-                        return null;
-                    }
-                }
-                int yearCandidate = Integer.parseInt(firstNumberToken.tokenAsString + "" + secondNumberToken.tokenAsString);
-                if (firstNumberToken.afterWord.trim().equals("") && IsCollectYear(yearCandidate))
-                {
-                    orderedNumberTokens = NumberToken.CreateArray(yearCandidate, thirdNumberToken, forthNumberToken);
-                }
-                else
-                {
-                    return null;
-                }
-            }
+    /**
+     * 形の位置から年・月・日を取り出して scratch に設定する。年がない形は基準値に近い年、日がない形は日の省略
+     */
+    private static void ApplyLayout(DigitShapeTable.Layout layout, char[] digits, int digitsLength, boolean hasEnglishMonth, int englishMonth,
+            int basisYear, int basisMonth, ParseScratch scratch)
+    {
+        int month = hasEnglishMonth ? englishMonth : ParseDigits(digits, digitsLength, layout.monthStart, layout.monthEnd);
+        scratch.month = month;
+        scratch.year = layout.hasYear() ? ParseDigits(digits, digitsLength, layout.yearStart, layout.yearEnd) : GetNearYear(month, basisYear, basisMonth);
+        scratch.day = layout.hasDay() ? ParseDigits(digits, digitsLength, layout.dayStart, layout.dayEnd) : DATE_NOTEXIST_SIGN;
+    }
+
+    /**
+     * 時刻付きの文字列を認識する。例外を使わずに1回の走査で判定する。
+     * yyyy/MM/dd HH:mm:ss.SSSSSS のほか、日付の区切りは - . 、日付と時刻の区切りは T (小文字化済み) も受け付ける。
+     * 秒と秒の小数部(9桁まで)は省略できる。
+     * 年は他の形と同じく、設定の西暦として扱う年の範囲で確認する。
+     * @return yyyymmdd。時刻付きの形でない場合は NOT_TIMESTAMP、形は合っているが日付や時刻が範囲外の場合は ParseStatus.packed()
+     */
+    private static int ParseTimestamp(ParserConfig config, char[] buf, int length, ParseScratch scratch)
+    {
+        int yearEnd = SkipDigits(buf, 0, length, 9);
+        if (yearEnd == 0 || yearEnd == length)
+        {
+            return NOT_TIMESTAMP;
         }
-        else // Too many tokens. but not come here caz validate before.
+        char dateSeparator = buf[yearEnd];
+        if (dateSeparator != '/' && dateSeparator != '-' && dateSeparator != '.')
         {
-            return null;
+            return NOT_TIMESTAMP;
         }
-
-        // finalize
-        if (gengo != null)
+        int monthEnd = SkipDigits(buf, yearEnd + 1, length, 2);
+        if (monthEnd == yearEnd + 1 || monthEnd == length || buf[monthEnd] != dateSeparator)
         {
-            orderedNumberTokens[0] = new NumberToken(orderedNumberTokens[0].token + gengo.yearAdd);
+            return NOT_TIMESTAMP;
         }
-        else if (!IsCollectYear(orderedNumberTokens[0]) && 100 > orderedNumberTokens[0].token)// suspect "令和" is omitted. or YYyy's YY is ommited.
+        int dayEnd = SkipDigits(buf, monthEnd + 1, length, 2);
+        if (dayEnd == monthEnd + 1 || dayEnd == length || (buf[dayEnd] != ' ' && buf[dayEnd] != 't'))
         {
-            if (englishMonthInfo.isHasEnglishMonth())
+            return NOT_TIMESTAMP;
+        }
+        int hourEnd = SkipDigits(buf, dayEnd + 1, length, 2);
+        if (hourEnd == dayEnd + 1 || hourEnd == length || buf[hourEnd] != ':')
+        {
+            return NOT_TIMESTAMP;
+        }
+        int minuteEnd = SkipDigits(buf, hourEnd + 1, length, 2);
+        if (minuteEnd == hourEnd + 1)
+        {
+            return NOT_TIMESTAMP;
+        }
+        int second = 0;
+        int nano = 0;
+        int pos = minuteEnd;
+        if (pos < length && buf[pos] == ':')
+        {
+            int secondEnd = SkipDigits(buf, pos + 1, length, 2);
+            if (secondEnd == pos + 1)
             {
-                //英語月が含まれる場合の年の桁不足は西暦として扱う
-                orderedNumberTokens[0] = new NumberToken(orderedNumberTokens[0].token + 2000);
-            }
-            else {
-                orderedNumberTokens[0] = new NumberToken(CalcNealyYearFromWarekiOrYear(orderedNumberTokens[0], basisDate));
+                return NOT_TIMESTAMP;
             }
-            if (!IsCollectYear(orderedNumberTokens[0]))// validate.
+            second = ParseDigits(buf, length, pos + 1, secondEnd);
+            pos = secondEnd;
+            if (pos < length && buf[pos] == '.')
             {
-                return null;
+                int fractionEnd = SkipDigits(buf, pos + 1, length, 9);
+                if (fractionEnd == pos + 1)
+                {
+                    return NOT_TIMESTAMP;
+                }
+                nano = ParseDigits(buf, length, pos + 1, fractionEnd) * POWERS_OF_TEN[9 - (fractionEnd - pos - 1)];
+                pos = fractionEnd;
             }
         }
-        if (hasMatsujitsu || orderedNumberTokens[2].token == DATE_MATSUJITU_SIGN)
+        if (pos != length)
         {
-        	YearMonth yearMonthObject = YearMonth.of(orderedNumberTokens[0].token, orderedNumberTokens[1].token);
-        	int daysInMonth = yearMonthObject.lengthOfMonth();
-            orderedNumberTokens[2] = new NumberToken(daysInMonth);
+            return NOT_TIMESTAMP;
         }
-        else if (orderedNumberTokens[2].token == DATE_NOTEXIST_SIGN || orderedNumberTokens[2].token == DATE_NOTSET_NOW_SIGN)
+
+        int year = ParseDigits(buf, length, 0, yearEnd);
+        int month = ParseDigits(buf, length, yearEnd + 1, monthEnd);
+        int day = ParseDigits(buf, length, monthEnd + 1, dayEnd);
+        int hour = ParseDigits(buf, length, dayEnd + 1, hourEnd);
+        int minute = ParseDigits(buf, length, hourEnd + 1, minuteEnd);
+        if (!config.isYearInRange(year))
         {
-            orderedNumberTokens[2] = new NumberToken(1);
+            return ParseStatus.OUT_OF_RANGE.packed();
         }
-        DateTime parsedDate = new DateTime(orderedNumberTokens[0].token, orderedNumberTokens[1].token,
-                orderedNumberTokens[2].token, 0, 0);
-
-        //validate
-        if (!IsCollectYear(orderedNumberTokens[0]) || parsedDate.getYear() != orderedNumberTokens[0].token ||
-                parsedDate.getMonthOfYear() != orderedNumberTokens[1].token || parsedDate.getDayOfMonth() != orderedNumberTokens[2].token)
+        int packed = DateValidator.validate(year, month, day);
+        if (packed < 0)
         {
-            return null;
+            return packed;
+        }
+        if (hour > 23 || minute > 59 || second > 59)
+        {
+            return ParseStatus.UNRECOGNIZED.packed();
         }
-        return parsedDate;
+        scratch.hasTime = true;
+        scratch.hour = hour;
+        scratch.minute = minute;
+        scratch.second = second;
+        scratch.nano = nano;
+        return packed;
     }
 
-    private static int GetNearYear(NumberToken month, DateTime basisTime)
+    /**
+     * 数字を最大 maxDigits 文字まで読み進める
+     * @return 数字の終了位置(この位置の文字は含まない)
+     */
+    private static int SkipDigits(char[] buf, int from, int length, int maxDigits)
     {
-        return GetNearYear(month.token, basisTime);
+        int i = from;
+        while (i < length && i - from < maxDigits && buf[i] >= '0' && buf[i] <= '9')
+        {
+            i++;
+        }
+        return i;
     }
-    
-    private static int GetNearYear(int month, DateTime basisTime)
+
+    private static int GetNearYear(int month, int basisYear, int basisMonth)
     {
-        if (month == 12 && basisTime.getMonthOfYear() == 1)
+        if (month == 12 && basisMonth == 1)
         {
-            return basisTime.getYear() - 1;
+            return basisYear - 1;
         }
-        return basisTime.getYear();
+        return basisYear;
     }
     
     private static DateTime IfNullNowOrAsis(DateTime datetime)
@@ -693,25 +1546,29 @@ public class DateParser
         return (DateTime)datetime;
     }
     
-    private static CalcStart3WordNenAndMonthByNearNowData CalcStart3WordNenAndMonthByNearNow(String src, GengoYearTable knownGengo, DateTime basisDate)
+    private static CalcStart3WordNenAndMonthByNearNowData CalcStart3WordNenAndMonthByNearNow(char[] src, int length, GengoYearTable knownGengo, int basisYear,
+            CalcStart3WordNenAndMonthByNearNowData calcStart3WordNenAndMonthByNearNowData)
     {
-        CalcStart3WordNenAndMonthByNearNowData calcStart3WordNenAndMonthByNearNowData = new CalcStart3WordNenAndMonthByNearNowData();
-        int oneWordNen = Integer.parseInt(src.substring(0, 1));
-        int twoWordNen = Integer.parseInt(src.substring(0, 2));
+        int oneWordNen = ParseDigits(src, length, 0, 1);
+        int twoWordNen = ParseDigits(src, length, 0, 2);
+        if (oneWordNen == PARSE_ERROR || twoWordNen == PARSE_ERROR || length < 3)
+        {
+            return null;
+        }
         if (knownGengo != null)
         {
             // just judge which 1 or 2 word is wareki.
-            if (IsNearYearNowThan(oneWordNen + knownGengo.yearAdd, twoWordNen + knownGengo.yearAdd, basisDate))
+            if (IsNearYearNowThan(oneWordNen + knownGengo.yearAdd, twoWordNen + knownGengo.yearAdd, basisYear))
             {
                 calcStart3WordNenAndMonthByNearNowData.setSuspectGengo(knownGengo);
                 calcStart3WordNenAndMonthByNearNowData.setNen(oneWordNen);
-                calcStart3WordNenAndMonthByNearNowData.setMonth(Integer.parseInt(src.substring(1, 3)));
+                calcStart3WordNenAndMonthByNearNowData.setMonth(ParseDigits(src, length, 1, 3));
             }
             else
             {
                 calcStart3WordNenAndMonthByNearNowData.setSuspectGengo(knownGengo);
                 calcStart3WordNenAndMonthByNearNowData.setNen(oneWordNen);
-                calcStart3WordNenAndMonthByNearNowData.setMonth(Integer.parseInt(src.substring(2, 3)));
+                calcStart3WordNenAndMonthByNearNowData.setMonth(ParseDigits(src, length, 2, 3));
             }
             return calcStart3WordNenAndMonthByNearNowData;
         }
@@ -720,7 +1577,7 @@ public class DateParser
         int twoWordNenAsYear = oneWordNen + 2000;
         int twoWordNenAsWareki = oneWordNen + GengoYearTable.REIWA_YEAR_ADDITION;
 
-        int nowYear = IfNullNowOrAsis(basisDate).getYear();
+        int nowYear = basisYear;
         int absOneYear = nowYear - oneWordNenAsYear;
         int absOneWareki = nowYear - oneWordNenAsWareki;
         int absTwoYear = nowYear - twoWordNenAsYear;
@@ -730,82 +1587,50 @@ public class DateParser
         {
             calcStart3WordNenAndMonthByNearNowData.setSuspectGengo(null);
             calcStart3WordNenAndMonthByNearNowData.setNen(oneWordNen);
-            calcStart3WordNenAndMonthByNearNowData.setMonth(Integer.parseInt(src.substring(1, 3)));
+            calcStart3WordNenAndMonthByNearNowData.setMonth(ParseDigits(src, length, 1, 3));
         }
         else if (mostNear == absOneWareki)
         {
             calcStart3WordNenAndMonthByNearNowData.setSuspectGengo(GengoYearTable.REIWA);
             calcStart3WordNenAndMonthByNearNowData.setNen(oneWordNen);
-            calcStart3WordNenAndMonthByNearNowData.setMonth(Integer.parseInt(src.substring(1, 3)));
+            calcStart3WordNenAndMonthByNearNowData.setMonth(ParseDigits(src, length, 1, 3));
         }
         else if (mostNear == absTwoYear)
         {
             calcStart3WordNenAndMonthByNearNowData.setSuspectGengo(null);
             calcStart3WordNenAndMonthByNearNowData.setNen(oneWordNen);
-            calcStart3WordNenAndMonthByNearNowData.setMonth(Integer.parseInt(src.substring(2, 3)));
+            calcStart3WordNenAndMonthByNearNowData.setMonth(ParseDigits(src, length, 2, 3));
         }
         else //(mostNear == absTwoWareki)
         {
             calcStart3WordNenAndMonthByNearNowData.setSuspectGengo(GengoYearTable.REIWA);
             calcStart3WordNenAndMonthByNearNowData.setNen(oneWordNen);
-            calcStart3WordNenAndMonthByNearNowData.setMonth(Integer.parseInt(src.substring(2, 3)));
+            calcStart3WordNenAndMonthByNearNowData.setMonth(ParseDigits(src, length, 2, 3));
         }
         return calcStart3WordNenAndMonthByNearNowData;
     }
     
-    private static int CalcNealyYearFromWarekiOrYear(NumberToken src, DateTime basisDate)
-    {
-        return CalcNealyYearFromWarekiOrYear(src.token, basisDate);
-    }
-    
-    private static int CalcNealyYearFromWarekiOrYear(int src, DateTime basisDate)
+    private static int CalcNealyYearFromWarekiOrYear(int src, int basisYear)
     {
         int candidateWareki = src + GengoYearTable.REIWA_YEAR_ADDITION;
         int candidateYear = src + 2000;
-        return IsNearYearNowThan(candidateWareki, candidateYear, basisDate) ? candidateWareki : candidateYear;
+        return IsNearYearNowThan(candidateWareki, candidateYear, basisYear) ? candidateWareki : candidateYear;
     }
     
-    private static boolean IsNearYearNowThan(int src, int target, DateTime basisDate)
+    private static boolean IsNearYearNowThan(int src, int target, int basisYear)
     {
-        int thisYear = IfNullNowOrAsis(basisDate).getYear();
+        int thisYear = basisYear;
         return Math.abs(src - thisYear) < Math.abs(target - thisYear);
     }
 
-    private static String ReplaceFullToHalf(String src)
-    {
-        src = ToHalfLowerCaseFromFullUpperCaseForAlphabet(src);
-    	for (String key : halfToFullDictionary.keySet())
-        {
-            src = src.replace(key, halfToFullDictionary.get(key));
-        }
-        return src;
-    }
-
     /**
      * 英語月を数字に変換する。OCR誤読やスペルミスは変換しない
+     * 事前に作成したトライ木で1回走査し、月の検索・前後の数字の数の計測・置換を行う。
      * @param src
      * @return
      */
     public static String ReplaceEnglishMonthToNumber(String src, EnglishMonthInfo englishMonthInfo) {
-        EnglishMonthInfo.init(englishMonthInfo, false, "", 0, 0);
-        for (String key : englishMonthDictionary.keySet())
-        {
-            String regex = "(?<![a-z])" + key + "(?![a-z])";
-            Pattern p = Pattern.compile(regex);
-            Matcher matcher = p.matcher(src);
-            if (matcher.find())
-            {
-                englishMonthInfo.setHasEnglishMonth(true);
-                englishMonthInfo.setMonth(englishMonthDictionary.get(key));
-                //英語月の前後の数字の数を保持
-                String[] monthSplit = p.split(src, -1);
-                englishMonthInfo.setNumberCountBeforeMonth(monthSplit[0].replaceAll("[^0-9]", "").length());
-                englishMonthInfo.setNumberCountAfterMonth(monthSplit[1].replaceAll("[^0-9]", "").length());
-                src = src.replaceAll(regex, englishMonthDictionary.get(key));
-                break;
-            }
-        }
-        return src;
+        return DEFAULT.config.englishMonthRecognizer.replace(src, englishMonthInfo);
     }
 
     /**
@@ -833,100 +1658,168 @@ public class DateParser
         return sb.toString();
     }
 
-    /**
-     * find 昭和、平成、令和、昭、平、令、S、H、R、L
-     * @param src
-     * @return
-     */
-    private static GengoYearTable FindGengo(String src)
+    private static boolean HasMatsujitsu(char[] src, int length)
     {
-        return GengoYearTable.table.stream().filter(gengoTable -> src.toLowerCase().
-                startsWith(gengoTable.gengo.toLowerCase())).findFirst().orElse(null);
+        // 前後の空白(trim)を除いて、末 or 末日 で終わるか
+        int start = 0;
+        int end = length;
+        while (start < end && src[start] <= ' ')
+        {
+            start++;
+        }
+        while (start < end && src[end - 1] <= ' ')
+        {
+            end--;
+        }
+        return (end - start >= 1 && src[end - 1] == '末') ||
+                (end - start >= 2 && src[end - 2] == '末' && src[end - 1] == '日');
     }
 
-    private static boolean HasMatsujitsu(String src)
+    private static boolean Contains(char[] src, int length, char c)
     {
-        String trimed = src.trim();
-        return trimed.endsWith("末") || trimed.endsWith("末日");
+        for (int i = 0; i < length; i++)
+        {
+            if (src[i] == c)
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private static NumberToken[] TokenizeWithNumber(String src)
+    /**
+     * 数字の並びの指定範囲を数値にする。String.substring と Integer.parseInt が失敗する範囲は PARSE_ERROR
+     * @param digits 数字の並び
+     * @param length 数字の並びの長さ
+     * @param from 開始位置
+     * @param to 終了位置(この位置の文字は含まない)
+     * @return 数値。範囲外、空、int に収まらない場合は PARSE_ERROR
+     */
+    private static int ParseDigits(char[] digits, int length, int from, int to)
     {
-    	Matcher matcher = Pattern.compile("(?<number>[0-9]+)(?<after>[^0-9]*)").matcher(src);
-    	List<NumberToken> list = new ArrayList<>();
-    	while(matcher.find()) {
-    		list.add(new NumberToken(matcher.group("number"), matcher.group("after")));
-    	}
-
-        return list.toArray(new NumberToken[0]);
+        if (from < 0 || from >= to || to > length)
+        {
+            return PARSE_ERROR;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++)
+        {
+            value = value * 10 + (digits[i] - '0');
+            if (value > Integer.MAX_VALUE)
+            {
+                return PARSE_ERROR;
+            }
+        }
+        return (int) value;
     }
 
-	/**
-	 * yearToken が範囲内かを確認
-	 * @param yearToken
-	 * @return true : yearTokenが範囲内(MINIMUM_YEAR～MAXIMUM_YEAR)  false : yearTokenが範囲外
-	 */
-    private static boolean IsCollectYear(NumberToken yearToken)
+    /**
+     * 2つの数字をつなげた数値(Integer.parseInt(first + second) に相当)
+     */
+    private static int JoinDigits(char[] src, NumberTokenizer tokens, int firstIndex, int secondIndex)
     {
-        return IsCollectYear(yearToken.token);
+        long value = tokens.value(firstIndex);
+        for (int i = tokens.start(secondIndex); i < tokens.end(secondIndex); i++)
+        {
+            value = value * 10 + (src[i] - '0');
+            if (value > Integer.MAX_VALUE)
+            {
+                return PARSE_ERROR;
+            }
+        }
+        return (int) value;
     }
 
-	/**
-	 * monthToken が範囲内かを確認
-	 * @param monthToken
-	 * @return true : monthTokenが範囲内(1～12)  false : monthTokenが範囲外
-	 */
-    private static boolean IsCollectMonth(NumberToken monthToken)
+    private static int CopyDigits(char[] src, int from, int to, char[] dest, int destPos)
     {
-        return IsCollectMonth(monthToken.token);
+        System.arraycopy(src, from, dest, destPos, to - from);
+        return destPos + (to - from);
     }
 
     /**
-     * monthToken が範囲内かを確認
-     * @param monthToken
-     * @param month
-     * @return
+     * 数字の並びから指定位置の文字を削除して dest に書き込む(deleteStr に相当)
+     * @return 削除後の長さ。削除開始位置が範囲外の場合は -1
      */
-    private static boolean IsCollectDate(NumberToken monthToken, int month)
+    private static int DeleteDigits(char[] src, int length, int startIndex, int count, char[] dest)
     {
-        return IsCollectDate(monthToken.token, month);
+        if (startIndex > length)
+        {
+            return -1;
+        }
+        int endIndex = Math.min(startIndex + count, length);
+        System.arraycopy(src, 0, dest, 0, startIndex);
+        System.arraycopy(src, endIndex, dest, startIndex, length - endIndex);
+        return length - (endIndex - startIndex);
     }
 
-	/**
-	 * year が範囲内かを確認
-	 * @param year
-	 * @return true : yearが範囲内(MINIMUM_YEAR～MAXIMUM_YEAR)  false : yearが範囲外
-	 */
-    private static boolean IsCollectYear(int year)
+    /**
+     * 数字の並びから英語月の数字をすべて除いて、最後に英語月の数字をつける(date.replace(month, "") + month に相当)
+     * @return dest に書き込んだ長さ
+     */
+    private static int MoveMonthToLast(char[] src, int length, String month, char[] dest)
     {
-        return year >= MINIMUM_YEAR && year <= MAXIMUM_YEAR;
+        int monthLength = month.length();
+        int written = 0;
+        int i = 0;
+        while (i < length)
+        {
+            if (i + monthLength <= length && RegionMatches(src, i, month))
+            {
+                i += monthLength;
+                continue;
+            }
+            dest[written++] = src[i++];
+        }
+        month.getChars(0, monthLength, dest, written);
+        return written + monthLength;
     }
 
-	/**
-	 * month が範囲内かを確認
-	 * @param month
-	 * @return true : monthが範囲内(1～12)  false : monthが範囲外
-	 */
-    private static boolean IsCollectMonth(int month)
+    private static boolean RegionMatches(char[] src, int offset, String prefix)
     {
-        return month >= 1 && month <= 12;
+        for (int i = 0; i < prefix.length(); i++)
+        {
+            if (src[offset + i] != prefix.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static boolean IsCollectDate(int date, int month) {
-        if (month == 2)
+    /**
+     * 数字の並びから英語月の位置の2文字を除き、英語月の数字を前か後ろにつける。
+     * (deleteStr(token, startIndex, 2) + month または month + deleteStr(token, startIndex, 2) に相当)
+     * digits は length + 英語月の長さ 以上の大きさであること
+     * @return 変換後の長さ。削除開始位置が範囲外の場合は -1
+     */
+    private static int MoveMonth(char[] digits, int length, int startIndex, String month, boolean toFront)
+    {
+        if (startIndex > length)
         {
-            //年が不定のため29まで考慮
-            return date >= 1 && date <= 29;
+            return -1;
         }
-        else if (0 <= Arrays.asList(4, 6, 9, 11).indexOf(month))
+        int endIndex = Math.min(startIndex + 2, length);
+        System.arraycopy(digits, endIndex, digits, startIndex, length - endIndex);
+        length -= endIndex - startIndex;
+        int monthLength = month.length();
+        if (toFront)
         {
-            return date >= 1 && date <= 30;
+            System.arraycopy(digits, 0, digits, monthLength, length);
+            month.getChars(0, monthLength, digits, 0);
         }
-        else if(0 <= Arrays.asList(1, 3, 5, 7, 8, 10, 12).indexOf(month))
+        else
         {
-            return date >= 1 && date <= 31;
+            month.getChars(0, monthLength, digits, length);
         }
-        return false;
+        return length + monthLength;
+    }
+
+    /**
+     * 英語月の置換後の数字(2桁)を数値にする
+     */
+    private static int MonthValue(String month)
+    {
+        return (month.charAt(0) - '0') * 10 + (month.charAt(1) - '0');
     }
 
     /**
@@ -966,6 +1859,315 @@ public class DateParser
         }
     }
 
+    /**
+     * DateParser を作成する。省略した設定は ParserConfig.defaults() と同じ。
+     */
+    public static final class Builder
+    {
+        private Map<String, String> halfToFullDictionary = DateParser.halfToFullDictionary;
+        private Map<String, String> englishMonthDictionary = DateParser.englishMonthDictionary;
+        private List<GengoYearTable> gengoTable = GengoYearTable.table;
+        private int minimumYear = ParserConfig.DEFAULT_MINIMUM_YEAR;
+        private int maximumYear = ParserConfig.DEFAULT_MAXIMUM_YEAR;
+
+        private Builder()
+        {
+        }
+
+        /**
+         * 全角→半角、漢数字→数字の置換辞書(登録順に優先)
+         * build() の時点でコピーするので、その後に辞書を変更しても作成したインスタンスには影響しない。
+         */
+        public Builder halfToFullDictionary(Map<String, String> dictionary)
+        {
+            this.halfToFullDictionary = dictionary;
+            return this;
+        }
+
+        /**
+         * 英語月(2文字以上の英小文字)と月の数字(2桁)の辞書(登録順に優先)
+         * build() の時点でコピーするので、その後に辞書を変更しても作成したインスタンスには影響しない。
+         */
+        public Builder englishMonthDictionary(Map<String, String> dictionary)
+        {
+            this.englishMonthDictionary = dictionary;
+            return this;
+        }
+
+        /**
+         * 認識する年号(先頭から順に前方一致で探す)
+         */
+        public Builder gengoTable(List<GengoYearTable> gengoTable)
+        {
+            this.gengoTable = gengoTable;
+            return this;
+        }
+
+        /**
+         * 西暦として扱う年の範囲。範囲外の2桁の年は、西暦の下2桁か令和の年として補う。
+         */
+        public Builder yearRange(int minimumYear, int maximumYear)
+        {
+            this.minimumYear = minimumYear;
+            this.maximumYear = maximumYear;
+            return this;
+        }
+
+        /**
+         * 辞書をコピーして変換表を作成する
+         */
+        public DateParser build()
+        {
+            return new DateParser(new ParserConfig(halfToFullDictionary, englishMonthDictionary, gengoTable, minimumYear, maximumYear));
+        }
+    }
+
+    /**
+     * parseCandidates で、パースの途中で選ばなかった読み方(検証前の年・月・日)を記録する
+     */
+    static final class CandidateRecorder
+    {
+        boolean recording;
+        /** 文字に書かれた年号。ない場合は GengoCalendar.NONE */
+        int era;
+        boolean hasMatsujitsu;
+        boolean hasEnglishMonth;
+        int count;
+        int[] years = new int[8];
+        int[] months = new int[8];
+        int[] days = new int[8];
+        int[] eras = new int[8];
+        int[] flags = new int[8];
+        GengoYearTable[] gengos = new GengoYearTable[8];
+
+        void start()
+        {
+            clear();
+            recording = true;
+            era = GengoCalendar.NONE;
+            hasMatsujitsu = false;
+            hasEnglishMonth = false;
+        }
+
+        void clear()
+        {
+            Arrays.fill(gengos, 0, count, null);
+            count = 0;
+        }
+
+        void setInput(int era, boolean hasMatsujitsu, boolean hasEnglishMonth)
+        {
+            this.era = era;
+            this.hasMatsujitsu = hasMatsujitsu;
+            this.hasEnglishMonth = hasEnglishMonth;
+        }
+
+        void record(int year, int month, int day, GengoYearTable gengo, int era, int flag)
+        {
+            if (count == years.length)
+            {
+                int capacity = count * 2;
+                years = Arrays.copyOf(years, capacity);
+                months = Arrays.copyOf(months, capacity);
+                days = Arrays.copyOf(days, capacity);
+                eras = Arrays.copyOf(eras, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+                gengos = Arrays.copyOf(gengos, capacity);
+            }
+            years[count] = year;
+            months[count] = month;
+            days[count] = day;
+            gengos[count] = gengo;
+            eras[count] = era;
+            flags[count] = flag;
+            count++;
+        }
+    }
+
+    /**
+     * 1回のパースで使う作業領域。スレッドごとに再利用し、トークンごとのオブジェクト生成をなくす。
+     */
+    static final class ParseScratch
+    {
+        private FullToHalfNormalizer normalizer;
+        final NumberTokenizer tokenizer = new NumberTokenizer();
+        final EnglishMonthInfo englishMonthInfo = new EnglishMonthInfo();
+        /** char[] の範囲をパースする場合の入力 */
+        final CharArraySequence chars = new CharArraySequence();
+        final CalcStart3WordNenAndMonthByNearNowData calcStart3WordNenAndMonthByNearNowData = new CalcStart3WordNenAndMonthByNearNowData();
+        /** parseCandidates の場合に、読み方の候補を記録する */
+        final CandidateRecorder candidates = new CandidateRecorder();
+        /** 時刻付きの文字列をパースした場合 true。以下の時刻が有効 */
+        boolean hasTime;
+        /** つなげた数字を形に当てはめた結果 */
+        int year;
+        int month;
+        int day;
+        GengoYearTable gengo;
+        int hour;
+        int minute;
+        int second;
+        int nano;
+        private char[] digits = new char[16];
+        private char[] work = new char[16];
+        /** ダイレクトバッファの UTF-8 をコピーする作業領域 */
+        private byte[] bytes = new byte[64];
+
+        /**
+         * 変換表に合った正規化クラス。スレッドごとに1つを再利用し、変換表が変わった場合だけ作り直す
+         */
+        FullToHalfNormalizer normalizer(FullToHalfNormalizer.Table table)
+        {
+            if (normalizer == null || normalizer.table() != table)
+            {
+                normalizer = new FullToHalfNormalizer(table);
+            }
+            return normalizer;
+        }
+
+        long nanoOfDay()
+        {
+            return ((hour * 60L + minute) * 60L + second) * 1000000000L + nano;
+        }
+
+        char[] digits(int capacity)
+        {
+            if (digits.length < capacity)
+            {
+                digits = new char[Math.max(capacity, digits.length * 2)];
+            }
+            return digits;
+        }
+
+        byte[] bytes(int capacity)
+        {
+            if (bytes.length < capacity)
+            {
+                bytes = new byte[Math.max(capacity, bytes.length * 2)];
+            }
+            return bytes;
+        }
+
+        char[] work(int capacity)
+        {
+            if (work.length < capacity)
+            {
+                work = new char[Math.max(capacity, work.length * 2)];
+            }
+            return work;
+        }
+    }
+
+    /**
+     * 配列の範囲を分割して並列にパースするタスク。ParseStatus.getCode() ごとの件数を返す。
+     * 範囲が重ならないので、結果の配列にはロックせずに書き込める。
+     */
+    private static final class ParallelBatch extends RecursiveTask<int[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final ParserConfig config;
+        private final CharSequence[] src;
+        private final int from;
+        private final int to;
+        private final int[] outPacked;
+        private final byte[] outStatus;
+        private final ParseContext context;
+        private final int sequentialCutoff;
+
+        ParallelBatch(ParserConfig config, CharSequence[] src, int from, int to, int[] outPacked, byte[] outStatus,
+                ParseContext context, int sequentialCutoff)
+        {
+            this.config = config;
+            this.src = src;
+            this.from = from;
+            this.to = to;
+            this.outPacked = outPacked;
+            this.outStatus = outStatus;
+            this.context = context;
+            this.sequentialCutoff = sequentialCutoff;
+        }
+
+        @Override
+        protected int[] compute()
+        {
+            if (to - from <= sequentialCutoff)
+            {
+                // ワーカーの作業領域は範囲ごとに1回だけ取得する
+                Batch batch = new Batch(config, context, outPacked, outStatus, SCRATCH.get(), null);
+                for (int i = from; i < to; i++)
+                {
+                    batch.parse(i, src[i]);
+                }
+                return batch.statusCounts;
+            }
+            int middle = (from + to) >>> 1;
+            ParallelBatch left = new ParallelBatch(config, src, from, middle, outPacked, outStatus, context, sequentialCutoff);
+            left.fork();
+            int[] statusCounts = new ParallelBatch(config, src, middle, to, outPacked, outStatus, context, sequentialCutoff).compute();
+            int[] leftCounts = left.join();
+            for (int i = 0; i < statusCounts.length; i++)
+            {
+                statusCounts[i] += leftCounts[i];
+            }
+            return statusCounts;
+        }
+    }
+
+    /**
+     * まとめてパースする間の状態。基準値、作業領域、結果を書き込む配列、件数を持つ。
+     * 直前と同じ文字列(String の場合だけ。変更できる CharSequence は内容が変わりうる)は、直前の結果を使う。
+     * キャッシュがある場合は、直前と同じでない文字列をキャッシュから引く。
+     */
+    private static final class Batch
+    {
+        private final ParserConfig config;
+        private final ParseContext context;
+        private final ParseCache cache;
+        private final int basisYear;
+        private final int basisMonth;
+        private final int[] outPacked;
+        private final byte[] outStatus;
+        private final ParseScratch scratch;
+        final int[] statusCounts = ParseBatchResult.NewCounts();
+        private String previous;
+        private int previousPacked;
+
+        Batch(ParserConfig config, ParseContext context, int[] outPacked, byte[] outStatus, ParseScratch scratch, ParseCache cache)
+        {
+            this.config = config;
+            this.context = context;
+            this.cache = cache;
+            this.basisYear = context.getBasisYear();
+            this.basisMonth = context.getBasisMonth();
+            this.outPacked = outPacked;
+            this.outStatus = outStatus;
+            this.scratch = scratch;
+        }
+
+        void parse(int index, CharSequence src)
+        {
+            int packed;
+            if (src instanceof String && src.equals(previous))
+            {
+                packed = previousPacked;
+            }
+            else
+            {
+                packed = cache != null ? cache.parsePacked(src, context, scratch) : ParsePacked(config, src, basisYear, basisMonth, scratch);
+                previous = src instanceof String ? (String) src : null;
+                previousPacked = packed;
+            }
+            outPacked[index] = packed;
+            byte code = ParseStatus.ofPacked(packed).getCode();
+            if (outStatus != null)
+            {
+                outStatus[index] = code;
+            }
+            statusCounts[code]++;
+        }
+    }
+
     public static class EnglishMonthInfo {
         public boolean hasEnglishMonth;
         public String month;
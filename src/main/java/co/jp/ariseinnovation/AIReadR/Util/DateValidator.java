@@ -0,0 +1,64 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+/**
+ * 年・月・日の検証
+ * 月ごとの日数は byte の表に持ち、閏年は計算で求める。日付のオブジェクトやボクシングは使わない。
+ */
+final class DateValidator {
+
+    /** 平年の月ごとの日数(添字が月。0は使わない) */
+    private static final byte[] DAYS_IN_MONTH = { 0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+    /** 年がわからない場合の月ごとの最大の日数(2月は閏年の29日) */
+    private static final byte[] MAXIMUM_DAYS_IN_MONTH = { 0, 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    private DateValidator() {
+    }
+
+    /**
+     * 月が1～12か
+     */
+    static boolean isValidMonth(int month) {
+        return month >= 1 && month <= 12;
+    }
+
+    static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * 月の日数(末日)
+     * @param year 西暦
+     * @param month 月(1～12)
+     */
+    static int lengthOfMonth(int year, int month) {
+        if (month == 2 && isLeapYear(year)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month];
+    }
+
+    /**
+     * 年がわからない場合に、日がその月にありうるか(2月は29日まで)
+     */
+    static boolean isPossibleDay(int day, int month) {
+        return isValidMonth(month) && day >= 1 && day <= MAXIMUM_DAYS_IN_MONTH[month];
+    }
+
+    /**
+     * 年・月・日を検証して yyyymmdd にする(年の範囲は確認しない)
+     * @return yyyymmdd。月が不正な場合は ParseStatus.BAD_MONTH、日が不正な場合は ParseStatus.BAD_DAY の packed()
+     */
+    static int validate(int year, int month, int day) {
+        if (!isValidMonth(month)) {
+            return ParseStatus.BAD_MONTH.packed();
+        }
+        if (day < 1 || day > lengthOfMonth(year, month)) {
+            return ParseStatus.BAD_DAY.packed();
+        }
+        return pack(year, month, day);
+    }
+
+    static int pack(int year, int month, int day) {
+        return year * 10000 + month * 100 + day;
+    }
+}
@@ -0,0 +1,304 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+/**
+ * 数字が1つにつながった日付(20201220、R21220 など)の形の表
+ * 形は yyyyMMdd のような文字で宣言し、作成時に (数字の桁数, 英語月・年号・末日の有無) で引ける配列にする。
+ * 形の文字は y・e が年(e は和暦の年)、M が月、d が日。年がない形は基準値に近い年、日がない形は日の省略を表す。
+ * 英語月がある場合、M を含まない形は英語月の数字を除いた残りに当てはめ、
+ * M を含む形は英語月の位置(前後の数字の数)が合うものだけを当てはめる。
+ * 作成後は変更しないため、スレッド間で共有できる。
+ */
+final class DigitShapeTable {
+
+    static final int ENGLISH_MONTH = 4;
+    static final int GENGO = 2;
+    static final int MATSUJITSU = 1;
+    private static final int FLAG_COUNT = 8;
+
+    static final int MINIMUM_LENGTH = 2;
+    static final int MAXIMUM_LENGTH = 8;
+
+    /**
+     * 既定の形
+     * Constraint:
+     *   * year and month must be.
+     *   * year is 2 or 4 length. (I dont know 13year past and 78year later.)
+     *   * wareki is 1 or 2 length
+     * Length 2 eM
+     * Length 3 yyM eMd eeM eMM
+     * Length 4 yyMd yyMM eeMd eeMM eMMd eMdd → recognize yyMM or eeMM. caz its complicated.
+     * Length 5 yyyyM yyMMd yMMdd eeMMd eMMdd → recognize eMMdd. caz its complicated. if MM is not month. recognize eeMMd
+     * Length 6 yyyyMM yyyyMd, yyMMdd, eeMMdd → recognize yyyyMM, yyMMdd, eeMMdd. caz its complicated.
+     * Length 7 yyyyMMd yyyyMdd → recognize yyyyMMd
+     * Length 8 yyyyMMdd
+     */
+    static final DigitShapeTable DEFAULT = new DigitShapeTable()
+            .add(2, "-english", Shape.layouts(Check.NONE, "eM"))
+            .add(2, "+english", Shape.layouts(Check.NONE, ""))// 英語月のみ
+            .add(3, "", Shape.nearEra())
+            .add(4, "-english", Shape.layouts(Check.NONE, "yyMM"))
+            .add(4, "+english", Shape.layouts(Check.NONE, "yy"))
+            .add(5, "-english", Shape.layouts(Check.MONTH, "eMMdd", "eeMMd"))
+            .add(5, "+english", Shape.layouts(Check.DATE, "ydd", "yyd"))
+            .add(6, "-english +gengo", Shape.layouts(Check.NONE, "yyMMdd"))
+            .add(6, "+english +gengo", Shape.layouts(Check.NONE, "yydd"))
+            .add(6, "-english -gengo +matsujitsu", Shape.layouts(Check.NONE, "yyyyMM"))
+            .add(6, "+english -gengo +matsujitsu", Shape.layouts(Check.NONE, "yyyy"))
+            .add(6, "-english -gengo -matsujitsu", Shape.nearYear("yyMMdd", "yyyyMM"))
+            .add(6, "+english -gengo -matsujitsu", Shape.nearYear("yydd", "yyyy"))
+            .add(7, "-english", Shape.layouts(Check.NONE, "yyyyMMd"))
+            .add(7, "+english", Shape.layouts(Check.NONE, "yyyyMMd", "dMMyyyy", "yyyydMM", "MMyyyyd"))
+            .add(8, "-english", Shape.layouts(Check.NONE, "yyyyMMdd"))
+            .add(8, "+english", Shape.layouts(Check.NONE, "yyyyMMdd", "ddMMyyyy", "yyyyddMM", "MMyyyydd"));
+
+    private final Shape[] shapes = new Shape[(MAXIMUM_LENGTH + 1) * FLAG_COUNT];
+
+    /**
+     * 形を追加する
+     * @param length つながった数字の桁数(英語月の数字を含む)
+     * @param condition 英語月・年号・末日の有無(+english -gengo +matsujitsu など)。書かないものはどちらでもよい
+     * @param shape 形
+     */
+    DigitShapeTable add(int length, String condition, Shape shape) {
+        if (length < MINIMUM_LENGTH || length > MAXIMUM_LENGTH) {
+            throw new IllegalArgumentException("数字の桁数は" + MINIMUM_LENGTH + "～" + MAXIMUM_LENGTH + "で指定してください: " + length);
+        }
+        int mask = 0;
+        int value = 0;
+        for (String term : condition.trim().split("\\s+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            int flag = FlagOf(term.substring(1));
+            mask |= flag;
+            if (term.charAt(0) == '+') {
+                value |= flag;
+            } else if (term.charAt(0) != '-') {
+                throw new IllegalArgumentException("条件は + または - で始めてください: " + term);
+            }
+        }
+        shape.validate(length, (mask & ENGLISH_MONTH) == 0 ? -1 : value & ENGLISH_MONTH);
+        for (int flags = 0; flags < FLAG_COUNT; flags++) {
+            if ((flags & mask) != value) {
+                continue;
+            }
+            int index = IndexOf(length, flags);
+            if (shapes[index] != null) {
+                throw new IllegalArgumentException("桁数 " + length + " の条件が重複しています: " + condition);
+            }
+            shapes[index] = shape;
+        }
+        return this;
+    }
+
+    /**
+     * 形を引く
+     * @param length つながった数字の桁数
+     * @param flags ENGLISH_MONTH、GENGO、MATSUJITSU の組み合わせ
+     * @return 形がない場合は null
+     */
+    Shape find(int length, int flags) {
+        if (length < MINIMUM_LENGTH || length > MAXIMUM_LENGTH) {
+            return null;
+        }
+        return shapes[IndexOf(length, flags)];
+    }
+
+    static int Flags(boolean hasEnglishMonth, boolean hasGengo, boolean hasMatsujitsu) {
+        return (hasEnglishMonth ? ENGLISH_MONTH : 0) | (hasGengo ? GENGO : 0) | (hasMatsujitsu ? MATSUJITSU : 0);
+    }
+
+    private static int IndexOf(int length, int flags) {
+        return length * FLAG_COUNT + flags;
+    }
+
+    private static int FlagOf(String name) {
+        switch (name) {
+        case "english":
+            return ENGLISH_MONTH;
+        case "gengo":
+            return GENGO;
+        case "matsujitsu":
+            return MATSUJITSU;
+        default:
+            throw new IllegalArgumentException("不明な条件です: " + name);
+        }
+    }
+
+    /**
+     * 形の選び方
+     */
+    enum Kind {
+        /** 先頭から順に当てはめる */
+        LAYOUTS,
+        /** 2桁の年の形と4桁の年の形のうち、年が基準値に近いほう */
+        NEAR_YEAR,
+        /** 3桁(yyM eMd eeM eMM)。年号を省略した令和かどうかも含めて、基準値に近い年を選ぶ */
+        NEAR_ERA
+    }
+
+    /**
+     * 次の形に進む条件
+     */
+    enum Check {
+        /** 確認しない(英語月の位置が合う最初の形) */
+        NONE,
+        /** 月が1～12でなければ次の形。すべて合わなければ BAD_MONTH */
+        MONTH,
+        /** 日がその月にありえなければ次の形。すべて合わなければ BAD_DAY */
+        DATE
+    }
+
+    /**
+     * 桁数と条件に対応する形
+     */
+    static final class Shape {
+
+        final Kind kind;
+        final Check check;
+        private final Layout[] layouts;
+
+        private Shape(Kind kind, Check check, Layout[] layouts) {
+            this.kind = kind;
+            this.check = check;
+            this.layouts = layouts;
+        }
+
+        static Shape layouts(Check check, String... patterns) {
+            return new Shape(Kind.LAYOUTS, check, Layout.compile(patterns));
+        }
+
+        static Shape nearYear(String twoDigitYear, String fourDigitYear) {
+            Layout[] layouts = Layout.compile(twoDigitYear, fourDigitYear);
+            if (layouts[0].yearEnd - layouts[0].yearStart != 2 || layouts[1].yearEnd - layouts[1].yearStart != 4) {
+                throw new IllegalArgumentException("年の桁数が2桁と4桁の形を指定してください: " + twoDigitYear + ", " + fourDigitYear);
+            }
+            return new Shape(Kind.NEAR_YEAR, Check.NONE, layouts);
+        }
+
+        static Shape nearEra() {
+            return new Shape(Kind.NEAR_ERA, Check.NONE, new Layout[0]);
+        }
+
+        int layoutCount() {
+            return layouts.length;
+        }
+
+        Layout layout(int index) {
+            return layouts[index];
+        }
+
+        /**
+         * 英語月の数字を除いた残りに当てはめる形か
+         */
+        boolean isWithoutMonth() {
+            return layouts.length > 0 && !layouts[0].hasMonth();
+        }
+
+        /**
+         * @param englishMonth 英語月がある場合 ENGLISH_MONTH、ない場合 0、どちらでもよい場合 -1
+         */
+        private void validate(int length, int englishMonth) {
+            for (Layout layout : layouts) {
+                if (layout.hasMonth() != layouts[0].hasMonth()) {
+                    throw new IllegalArgumentException("M を含む形と含まない形は混ぜられません");
+                }
+                if (!layout.hasMonth() && englishMonth != ENGLISH_MONTH) {
+                    throw new IllegalArgumentException("英語月がない場合は M を含む形を指定してください: " + layout);
+                }
+                int expected = layout.hasMonth() ? length : length - 2;
+                if (layout.length != expected) {
+                    throw new IllegalArgumentException("形の桁数が " + expected + " ではありません: " + layout);
+                }
+            }
+        }
+    }
+
+    /**
+     * yyyyMMdd などの形。年・月・日の位置(終わりは含まない)。ない場合は -1
+     */
+    static final class Layout {
+
+        final int length;
+        final int yearStart;
+        final int yearEnd;
+        final int monthStart;
+        final int monthEnd;
+        final int dayStart;
+        final int dayEnd;
+        private final String pattern;
+
+        private Layout(String pattern) {
+            this.pattern = pattern;
+            this.length = pattern.length();
+            for (int i = 0; i < length; i++) {
+                if ("yeMd".indexOf(pattern.charAt(i)) < 0) {
+                    throw new IllegalArgumentException("形に使えるのは y e M d です: " + pattern);
+                }
+            }
+            int[] year = Range(pattern, 'y', 'e');
+            int[] month = Range(pattern, 'M', 'M');
+            int[] day = Range(pattern, 'd', 'd');
+            this.yearStart = year[0];
+            this.yearEnd = year[1];
+            this.monthStart = month[0];
+            this.monthEnd = month[1];
+            this.dayStart = day[0];
+            this.dayEnd = day[1];
+        }
+
+        static Layout[] compile(String... patterns) {
+            Layout[] layouts = new Layout[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                layouts[i] = new Layout(patterns[i]);
+            }
+            return layouts;
+        }
+
+        boolean hasYear() {
+            return yearStart >= 0;
+        }
+
+        boolean hasMonth() {
+            return monthStart >= 0;
+        }
+
+        boolean hasDay() {
+            return dayStart >= 0;
+        }
+
+        /**
+         * 英語月の位置(前後の数字の数)が M の位置と合うか
+         */
+        boolean matchesMonthPosition(int numberCountBeforeMonth, int numberCountAfterMonth) {
+            return monthStart == numberCountBeforeMonth && length - monthEnd == numberCountAfterMonth;
+        }
+
+        /**
+         * 文字が連続している範囲
+         * @return {開始, 終了}。ない場合は {-1, -1}
+         */
+        private static int[] Range(String pattern, char c1, char c2) {
+            int start = -1;
+            int end = -1;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c != c1 && c != c2) {
+                    continue;
+                }
+                if (start < 0) {
+                    start = i;
+                } else if (end != i) {
+                    throw new IllegalArgumentException("年・月・日はそれぞれ連続させてください: " + pattern);
+                }
+                end = i + 1;
+            }
+            return new int[] { start, end };
+        }
+
+        @Override
+        public String toString() {
+            return pattern;
+        }
+    }
+}
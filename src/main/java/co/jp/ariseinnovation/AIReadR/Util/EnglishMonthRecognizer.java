@@ -0,0 +1,213 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 英語月(january, jan など)を探して数字に置き換えるクラス
+ * 英小文字のトライ木を事前に作成しておき、1回の走査で月の検索と前後の数字の数の計測を行う。
+ * 前後が英小文字でない単語だけを月とみなすので、DateParser.ReplaceEnglishMonthToNumber の
+ * 正規表現 (?&lt;![a-z])key(?![a-z]) と同じ判定になる。
+ * 作成後は変更しないため、スレッド間で共有できる。
+ */
+public class EnglishMonthRecognizer {
+
+    private static final int ALPHABET = 26;
+    private static final int NONE = -1;
+
+    private static volatile EnglishMonthRecognizer defaultRecognizer;
+
+    /** 状態×文字の遷移先。遷移できなければ NONE */
+    private final int[] next;
+    /** 状態ごとの一致した辞書の登録順。一致しなければ NONE */
+    private final int[] accept;
+    private final String[] values;
+    private final int[] keyLengths;
+
+    private EnglishMonthRecognizer(Map<String, String> dictionary) {
+        List<int[]> transitions = new ArrayList<>();
+        List<Integer> accepts = new ArrayList<>();
+        transitions.add(NewState());
+        accepts.add(NONE);
+        values = new String[dictionary.size()];
+        keyLengths = new int[dictionary.size()];
+        int index = 0;
+        for (Map.Entry<String, String> entry : dictionary.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if (key.isEmpty() || value.length() != 2 || !IsDigit(value.charAt(0)) || !IsDigit(value.charAt(1))) {
+                throw new IllegalArgumentException("英語月の辞書に登録できない組み合わせです: " + key + " → " + value);
+            }
+            if (key.length() < value.length()) {
+                // 単語をその場で月の数字(2桁)に置き換えるので、単語が数字より短いと後ろの文字を上書きしてしまう
+                throw new IllegalArgumentException("英語月は2文字以上で登録してください: " + key);
+            }
+            int state = 0;
+            for (int i = 0; i < key.length(); i++) {
+                int c = key.charAt(i) - 'a';
+                if (c < 0 || c >= ALPHABET) {
+                    throw new IllegalArgumentException("英語月は英小文字で登録してください: " + key);
+                }
+                int to = transitions.get(state)[c];
+                if (to == NONE) {
+                    to = transitions.size();
+                    transitions.get(state)[c] = to;
+                    transitions.add(NewState());
+                    accepts.add(NONE);
+                }
+                state = to;
+            }
+            if (accepts.get(state) == NONE) {
+                accepts.set(state, index);
+            }
+            values[index] = value;
+            keyLengths[index] = key.length();
+            index++;
+        }
+        next = new int[transitions.size() * ALPHABET];
+        accept = new int[transitions.size()];
+        for (int s = 0; s < transitions.size(); s++) {
+            System.arraycopy(transitions.get(s), 0, next, s * ALPHABET, ALPHABET);
+            accept[s] = accepts.get(s);
+        }
+    }
+
+    private static boolean IsDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int[] NewState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, NONE);
+        return state;
+    }
+
+    /**
+     * 辞書から認識器を作成する
+     * @param dictionary 英語月(2文字以上の英小文字)と月の数字(2桁)。複数の月が含まれる場合、登録順の早いものを採用する。
+     * @return 認識器
+     */
+    public static EnglishMonthRecognizer compile(Map<String, String> dictionary) {
+        return new EnglishMonthRecognizer(dictionary);
+    }
+
+    /**
+     * DateParser.englishMonthDictionary から作成した認識器
+     */
+    public static EnglishMonthRecognizer getDefault() {
+        EnglishMonthRecognizer recognizer = defaultRecognizer;
+        if (recognizer == null) {
+            synchronized (EnglishMonthRecognizer.class) {
+                recognizer = defaultRecognizer;
+                if (recognizer == null) {
+                    recognizer = new EnglishMonthRecognizer(DateParser.englishMonthDictionary);
+                    defaultRecognizer = recognizer;
+                }
+            }
+        }
+        return recognizer;
+    }
+
+    /**
+     * 英語月を数字に置き換えた文字列を返す
+     * @param src 対象文字列
+     * @param englishMonthInfo 見つかった月と前後の数字の数を設定する
+     * @return 置換後の文字列。月がなければ src そのもの
+     */
+    public String replace(String src, DateParser.EnglishMonthInfo englishMonthInfo) {
+        char[] buf = src.toCharArray();
+        int length = replace(buf, buf.length, englishMonthInfo);
+        return englishMonthInfo.isHasEnglishMonth() ? new String(buf, 0, length) : src;
+    }
+
+    /**
+     * バッファ内の英語月を数字に置き換える。置換後の文字列は元より長くならないので、同じバッファに上書きする。
+     * @param buf 対象の文字
+     * @param length 対象の文字数
+     * @param englishMonthInfo 見つかった月と前後の数字の数を設定する
+     * @return 置換後の文字数
+     */
+    public int replace(char[] buf, int length, DateParser.EnglishMonthInfo englishMonthInfo) {
+        DateParser.EnglishMonthInfo.init(englishMonthInfo, false, "", 0, 0);
+        int best = NONE;
+        int digitsBeforeBest = 0;
+        int digitsAtSecond = NONE;
+        int digits = 0;
+        int i = 0;
+        while (i < length) {
+            char c = buf[i];
+            if (c >= '0' && c <= '9') {
+                digits++;
+                i++;
+                continue;
+            }
+            if (c < 'a' || c > 'z') {
+                i++;
+                continue;
+            }
+            // 英小文字の並びを最後まで読み、全体が辞書のキーと一致するか
+            int state = 0;
+            while (i < length && buf[i] >= 'a' && buf[i] <= 'z') {
+                if (state != NONE) {
+                    state = next[state * ALPHABET + (buf[i] - 'a')];
+                }
+                i++;
+            }
+            int key = state == NONE ? NONE : accept[state];
+            if (key == NONE) {
+                continue;
+            }
+            if (best == NONE || key < best) {
+                best = key;
+                digitsBeforeBest = digits;
+                digitsAtSecond = NONE;
+            } else if (key == best && digitsAtSecond == NONE) {
+                digitsAtSecond = digits;
+            }
+        }
+        if (best == NONE) {
+            return length;
+        }
+        englishMonthInfo.setHasEnglishMonth(true);
+        englishMonthInfo.setMonth(values[best]);
+        englishMonthInfo.setNumberCountBeforeMonth(digitsBeforeBest);
+        englishMonthInfo.setNumberCountAfterMonth((digitsAtSecond == NONE ? digits : digitsAtSecond) - digitsBeforeBest);
+        return rewrite(buf, length, best);
+    }
+
+    /**
+     * 採用した月と一致する単語をすべて置換後の文字列に詰め替える
+     */
+    private int rewrite(char[] buf, int length, int key) {
+        String value = values[key];
+        int keyLength = keyLengths[key];
+        int write = 0;
+        int read = 0;
+        while (read < length) {
+            char c = buf[read];
+            if (c < 'a' || c > 'z') {
+                buf[write++] = c;
+                read++;
+                continue;
+            }
+            int runStart = read;
+            int state = 0;
+            while (read < length && buf[read] >= 'a' && buf[read] <= 'z') {
+                if (state != NONE) {
+                    state = next[state * ALPHABET + (buf[read] - 'a')];
+                }
+                read++;
+            }
+            if (state != NONE && accept[state] == key && read - runStart == keyLength) {
+                value.getChars(0, value.length(), buf, write);
+                write += value.length();
+            } else {
+                System.arraycopy(buf, runStart, buf, write, read - runStart);
+                write += read - runStart;
+            }
+        }
+        return write;
+    }
+}
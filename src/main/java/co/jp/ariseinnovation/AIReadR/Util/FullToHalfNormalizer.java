@@ -0,0 +1,411 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 全角→半角、英字の小文字化、漢数字→数字の置換を1パスで行うクラス
+ * DateParser.ToHalfLowerCaseFromFullUpperCaseForAlphabet と halfToFullDictionary による置換を
+ * 順に適用した結果と同じ文字列を返す。
+ * * 1文字の変換は文字コードで引く変換表で行う。
+ * * 複数文字の漢数字(二十一、三十など)は最長一致のトライ木で変換する。
+ * 出力先のバッファは再利用するため、インスタンスはスレッド間で共有しないこと。
+ */
+public class FullToHalfNormalizer {
+
+    /** 変換表で決まらない文字(トライ木の先頭文字、特殊な小文字化が必要な文字)を示す値 */
+    private static final char SPECIAL = '\uFFFF';
+
+    private final Table table;
+    private char[] buffer;
+    private int length;
+
+    public FullToHalfNormalizer() {
+        this(Table.getDefault());
+    }
+
+    public FullToHalfNormalizer(Table table) {
+        this.table = table;
+        this.buffer = new char[32];
+    }
+
+    /**
+     * 文字列を正規化してバッファに書き込む
+     * @param src 正規化する文字列
+     * @return 正規化後の文字数
+     */
+    public int normalize(CharSequence src) {
+        return normalize(src, 0, src.length());
+    }
+
+    /**
+     * 文字列の指定範囲を正規化してバッファに書き込む
+     * @param src 正規化する文字列
+     * @param start 開始位置
+     * @param end 終了位置(この位置の文字は含まない)
+     * @return 正規化後の文字数
+     */
+    public int normalize(CharSequence src, int start, int end) {
+        length = 0;
+        ensureCapacity(end - start);
+        if (!table.greedyExact || IsLocaleSensitive()) {
+            return normalizeLegacy(src.subSequence(start, end).toString());
+        }
+        final char[] map = table.map;
+        int i = start;
+        while (i < end) {
+            char c = src.charAt(i);
+            char m = map[c];
+            if (m != SPECIAL) {
+                if (length == buffer.length) {
+                    ensureCapacity(length + 1);
+                }
+                buffer[length++] = m;
+                i++;
+                continue;
+            }
+            Node node = table.longestMatch(src, i, end);
+            if (node != null) {
+                if (table.overlapsNext(src, i, i + node.depth, end)) {
+                    // 置換の優先順位によって結果が変わる並び(例: 十二十)は従来の順次置換に任せる
+                    return normalizeLegacy(src.subSequence(start, end).toString());
+                }
+                append(node.value);
+                i += node.depth;
+                continue;
+            }
+            if (c == 0x0130 || c == 0x03A3 || Character.isSurrogate(c)) {
+                // 小文字化で文字数や文脈が変わる文字(İ、Σ、サロゲートペア)
+                return normalizeLegacy(src.subSequence(start, end).toString());
+            }
+            if (length == buffer.length) {
+                ensureCapacity(length + 1);
+            }
+            buffer[length++] = FoldAlphabet(c);
+            i++;
+        }
+        return length;
+    }
+
+    /**
+     * UTF-8 のバイト列の指定範囲を正規化してバッファに書き込む
+     * ASCII は1バイトずつ変換表を引き、2・3バイトの文字(全角の数字・英字、年月日、漢数字、年号の漢字など)は
+     * その場で文字にして変換表を引く。UTF-16 の文字列は作成しない。
+     * 辞書の複数文字のキーの先頭になる文字(二、三、十 など)、特殊な小文字化が必要な文字、4バイトの文字、
+     * 不正なバイト列を含む場合は、範囲を文字列にしてから normalize で正規化する(不正なバイト列は U+FFFD になる)。
+     * @param src UTF-8 のバイト列
+     * @param start 開始位置
+     * @param end 終了位置(この位置のバイトは含まない)
+     * @return 正規化後の文字数
+     */
+    public int normalizeUtf8(byte[] src, int start, int end) {
+        length = 0;
+        ensureCapacity(end - start);
+        if (!table.greedyExact || IsLocaleSensitive()) {
+            return normalize(new String(src, start, end - start, StandardCharsets.UTF_8));
+        }
+        final char[] map = table.map;
+        final char[] out = buffer;
+        int written = 0;
+        int i = start;
+        while (i < end) {
+            int b = src[i];
+            int c;
+            int size;
+            if (b >= 0) {
+                c = b;
+                size = 1;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < end && IsContinuation(src[i + 1])) {
+                c = (b & 0x1F) << 6 | (src[i + 1] & 0x3F);
+                size = c >= 0x80 ? 2 : 0;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < end && IsContinuation(src[i + 1]) && IsContinuation(src[i + 2])) {
+                c = (b & 0x0F) << 12 | (src[i + 1] & 0x3F) << 6 | (src[i + 2] & 0x3F);
+                size = c >= 0x800 ? 3 : 0;
+            } else {
+                c = 0;
+                size = 0;
+            }
+            char m = size == 0 ? SPECIAL : map[c];
+            if (m == SPECIAL) {
+                // サロゲートの範囲(ED A0～) も map で SPECIAL になる
+                return normalize(new String(src, start, end - start, StandardCharsets.UTF_8));
+            }
+            // 1文字は1バイト以上なので、バイト数分の容量で足りる
+            out[written++] = m;
+            i += size;
+        }
+        length = written;
+        return length;
+    }
+
+    private static boolean IsContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * 正規化後の文字を保持するバッファ。有効な範囲は 0～length()-1
+     */
+    public char[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * 使用している変換表
+     */
+    public Table table() {
+        return table;
+    }
+
+    /**
+     * 正規化後の文字数
+     */
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    private int normalizeLegacy(String src) {
+        String replaced = ReplaceSequentially(src, table.entries);
+        length = 0;
+        append(replaced);
+        return length;
+    }
+
+    private void append(String value) {
+        int n = value.length();
+        ensureCapacity(length + n);
+        value.getChars(0, n, buffer, length);
+        length += n;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+
+    /**
+     * String.toLowerCase() が既定ロケールによって結果を変える言語(トルコ語など)か
+     */
+    private static boolean IsLocaleSensitive() {
+        String language = Locale.getDefault().getLanguage();
+        return "tr".equals(language) || "az".equals(language) || "lt".equals(language);
+    }
+
+    /**
+     * 従来どおり小文字化したあと辞書の順に置換する
+     */
+    static String ReplaceSequentially(String src, String[][] entries) {
+        src = DateParser.ToHalfLowerCaseFromFullUpperCaseForAlphabet(src);
+        for (String[] entry : entries) {
+            src = src.replace(entry[0], entry[1]);
+        }
+        return src;
+    }
+
+    /**
+     * ToHalfLowerCaseFromFullUpperCaseForAlphabet の1文字分の変換
+     */
+    private static char FoldAlphabet(char c) {
+        char lower = Character.toLowerCase(c);
+        if (lower >= 0xFF41 && lower <= 0xFF5A) {
+            return (char) (lower - 0xFF41 + 0x0061);
+        }
+        return lower;
+    }
+
+    private static boolean IsFoldStable(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (Character.isSurrogate(c) || FoldAlphabet(c) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * トライ木の節点
+     */
+    static final class Node {
+        final int depth;
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        String value;
+
+        Node(int depth) {
+            this.depth = depth;
+        }
+
+        Node child(char c) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrAdd(char c) {
+            Node found = child(c);
+            if (found != null) {
+                return found;
+            }
+            Node created = new Node(depth + 1);
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = c;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+
+    /**
+     * 辞書から作成した変換表。作成後は変更しないため、スレッド間で共有できる。
+     */
+    public static final class Table {
+
+        private static volatile Table defaultTable;
+
+        final String[][] entries;
+        final char[] map = new char[Character.MAX_VALUE + 1];
+        final Node root = new Node(0);
+        final boolean greedyExact;
+
+        private Table(Map<String, String> dictionary) {
+            List<String[]> list = new ArrayList<>();
+            for (Map.Entry<String, String> e : dictionary.entrySet()) {
+                list.add(new String[] { e.getKey(), e.getValue() });
+            }
+            this.entries = list.toArray(new String[0][]);
+
+            // 小文字化の後に残らない文字を含むキー(Ｓなど)は従来の処理でも置換されないので除外する
+            List<String[]> live = new ArrayList<>();
+            for (String[] entry : entries) {
+                if (!entry[0].isEmpty() && IsFoldStable(entry[0])) {
+                    live.add(entry);
+                }
+            }
+            this.greedyExact = IsGreedyExact(live);
+
+            for (String[] entry : live) {
+                Node node = root;
+                for (int i = 0; i < entry[0].length(); i++) {
+                    node = node.getOrAdd(entry[0].charAt(i));
+                }
+                if (node.value == null) {
+                    node.value = entry[1];
+                }
+            }
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                char ch = (char) c;
+                if (c == 0x0130 || c == 0x03A3 || Character.isSurrogate(ch)) {
+                    map[c] = SPECIAL;
+                    continue;
+                }
+                char folded = FoldAlphabet(ch);
+                Node node = root.child(folded);
+                if (node == null) {
+                    map[c] = folded;
+                } else if (node.labels.length == 0 && node.value.length() == 1) {
+                    // 1文字のキーで、複数文字のキーの先頭にならないもの(０、一など)
+                    map[c] = node.value.charAt(0);
+                } else {
+                    map[c] = SPECIAL;
+                }
+            }
+        }
+
+        /**
+         * 辞書から変換表を作成する
+         * @param dictionary 置換前の文字列と置換後の文字列。登録順に優先される。
+         * @return 変換表
+         */
+        public static Table compile(Map<String, String> dictionary) {
+            return new Table(dictionary);
+        }
+
+        /**
+         * DateParser.halfToFullDictionary から作成した変換表
+         */
+        public static Table getDefault() {
+            Table table = defaultTable;
+            if (table == null) {
+                synchronized (Table.class) {
+                    table = defaultTable;
+                    if (table == null) {
+                        table = new Table(DateParser.halfToFullDictionary);
+                        defaultTable = table;
+                    }
+                }
+            }
+            return table;
+        }
+
+        /**
+         * 最長一致で辞書のキーを探す
+         * @return 見つかったキーの終端の節点。見つからなければnull
+         */
+        Node longestMatch(CharSequence src, int start, int end) {
+            Node node = root;
+            Node matched = null;
+            for (int i = start; i < end; i++) {
+                node = node.child(FoldAlphabet(src.charAt(i)));
+                if (node == null) {
+                    break;
+                }
+                if (node.value != null) {
+                    matched = node;
+                }
+            }
+            return matched;
+        }
+
+        /**
+         * 一致した範囲の途中から始まり、範囲の外まで続くキーがあるか
+         */
+        boolean overlapsNext(CharSequence src, int matchStart, int matchEnd, int end) {
+            for (int i = matchStart + 1; i < matchEnd; i++) {
+                Node node = longestMatch(src, i, end);
+                if (node != null && i + node.depth > matchEnd) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 最長一致で1回走査した結果が、辞書順に置換を繰り返した結果と一致する辞書かを確認する。
+         * * あるキーを含む別のキーは、含まれるキーより先に登録されていること
+         * * 置換後の文字列にキーの文字が含まれないこと
+         */
+        private static boolean IsGreedyExact(List<String[]> live) {
+            for (int i = 0; i < live.size(); i++) {
+                String earlier = live.get(i)[0];
+                for (int j = i + 1; j < live.size(); j++) {
+                    String later = live.get(j)[0];
+                    if (later.length() > earlier.length() && later.contains(earlier)) {
+                        return false;
+                    }
+                }
+                String value = live.get(i)[1];
+                for (String[] other : live) {
+                    for (int k = 0; k < other[0].length(); k++) {
+                        if (value.indexOf(other[0].charAt(k)) >= 0) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
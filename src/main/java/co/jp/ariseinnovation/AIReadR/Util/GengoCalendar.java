@@ -0,0 +1,119 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.util.Arrays;
+
+/**
+ * 年号の期間(開始日)を管理し、和暦⇔西暦を変換する
+ * 開始日は yyyymmdd の数値で昇順の配列に持ち、二分探索で年号を求める。日付のオブジェクトは作成しない。
+ * 明治の開始日は java.time.chrono.JapaneseEra と同じく 1868-01-01 とする(旧暦の明治元年を1868年全体として扱う)。
+ */
+public final class GengoCalendar {
+
+    /** 年号が見つからない */
+    public static final int NONE = -1;
+
+    public static final int MEIJI = 0;
+    public static final int TAISHO = 1;
+    public static final int SHOWA = 2;
+    public static final int HEISEI = 3;
+    public static final int REIWA = 4;
+
+    private static final String[] NAMES = { "明治", "大正", "昭和", "平成", "令和" };
+    private static final String[] ABBREVIATIONS = { "M", "T", "S", "H", "R" };
+    /** 開始日(yyyymmdd)。昇順 */
+    private static final int[] START_DATES = { 18680101, 19120730, 19261225, 19890108, 20190501 };
+    /** 和暦の年に足すと西暦になる数。昇順 */
+    private static final int[] YEAR_ADDS = { 1867, 1911, 1925, 1988, 2018 };
+
+    private GengoCalendar() {
+    }
+
+    /**
+     * 年号の数
+     */
+    public static int count() {
+        return START_DATES.length;
+    }
+
+    /**
+     * 和暦の年に足す数から年号を求める(GengoYearTable.yearAdd から年号を求める)
+     * @return 年号。該当しない場合は NONE
+     */
+    public static int eraOfYearAdd(int yearAdd) {
+        int index = Arrays.binarySearch(YEAR_ADDS, yearAdd);
+        return index < 0 ? NONE : index;
+    }
+
+    /**
+     * 日付が含まれる年号(西暦→和暦)
+     * @param packedDate yyyymmdd
+     * @return 年号。明治より前の場合は NONE
+     */
+    public static int eraOf(int packedDate) {
+        int index = Arrays.binarySearch(START_DATES, packedDate);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 和暦の年を西暦にする
+     */
+    public static int toSeireki(int era, int warekiYear) {
+        return warekiYear + YEAR_ADDS[era];
+    }
+
+    /**
+     * 西暦の年を年号の年にする(年号の期間内かは確認しない)
+     */
+    public static int toWarekiYear(int era, int year) {
+        return year - YEAR_ADDS[era];
+    }
+
+    /**
+     * 日付が年号の期間内か
+     * @param packedDate yyyymmdd
+     */
+    public static boolean contains(int era, int packedDate) {
+        return packedDate >= START_DATES[era] && (era + 1 == START_DATES.length || packedDate < START_DATES[era + 1]);
+    }
+
+    /**
+     * 月のいずれかの日が年号の期間内か(日がわからない場合の確認。S64.1 は期間内、S64.2 は期間外)
+     * @param year 西暦
+     * @param month 月(1～12)
+     */
+    public static boolean containsMonth(int era, int year, int month) {
+        int firstDay = year * 10000 + month * 100 + 1;
+        int lastDay = year * 10000 + month * 100 + 31;
+        return lastDay >= START_DATES[era] && (era + 1 == START_DATES.length || firstDay < START_DATES[era + 1]);
+    }
+
+    /**
+     * 年号の開始日(yyyymmdd)
+     */
+    public static int startDate(int era) {
+        return START_DATES[era];
+    }
+
+    public static String name(int era) {
+        return NAMES[era];
+    }
+
+    public static String abbreviation(int era) {
+        return ABBREVIATIONS[era];
+    }
+
+    /**
+     * 西暦の日付を和暦の文字列(平成31年4月30日、令和元年5月1日 など)にする
+     * @param packedDate yyyymmdd
+     * @return 明治より前の場合は null
+     */
+    public static String format(int packedDate) {
+        int era = eraOf(packedDate);
+        if (era == NONE) {
+            return null;
+        }
+        int warekiYear = toWarekiYear(era, packedDate / 10000);
+        return NAMES[era] + (warekiYear == 1 ? "元" : String.valueOf(warekiYear)) + "年"
+                + (packedDate / 100 % 100) + "月" + (packedDate % 100) + "日";
+    }
+}
@@ -0,0 +1,147 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 年号の表記(昭和、昭、S など)を先頭の文字で引く索引
+ * 先頭の文字のハッシュ表から候補の表記を取り出し、前方一致した年号と表記の長さを求める。
+ * 候補は年号の表の登録順に並べるので、表を先頭から前方一致で探した場合と同じ年号になる。
+ * 作成後は変更しないため、スレッド間で共有できる。
+ */
+final class GengoIndex {
+
+    private static final int NONE = -1;
+
+    /** 先頭の文字のハッシュ表(開番地法)。空きは NONE */
+    private final char[] keys;
+    private final int[] firstCandidate;
+    private final int mask;
+    /** 先頭の文字が同じ次の候補。なければ NONE */
+    private final int[] nextCandidate;
+    /** 小文字にした表記 */
+    private final char[][] prefixes;
+    private final GengoYearTable[] gengoTable;
+    /** GengoCalendar の年号。yearAdd が該当しない表記は GengoCalendar.NONE */
+    private final int[] eras;
+
+    private GengoIndex(List<GengoYearTable> table) {
+        int size = table.size();
+        prefixes = new char[size][];
+        gengoTable = table.toArray(new GengoYearTable[0]);
+        nextCandidate = new int[size];
+        eras = new int[size];
+        int capacity = Integer.highestOneBit(Math.max(4, size * 2) - 1) << 1;
+        keys = new char[capacity];
+        firstCandidate = new int[capacity];
+        Arrays.fill(firstCandidate, NONE);
+        mask = capacity - 1;
+        int[] lastCandidate = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            char[] prefix = table.get(i).gengo.toLowerCase().toCharArray();
+            prefixes[i] = prefix;
+            eras[i] = GengoCalendar.eraOfYearAdd(table.get(i).yearAdd);
+            nextCandidate[i] = NONE;
+            if (prefix.length == 0) {
+                throw new IllegalArgumentException("年号の表記が空です");
+            }
+            int slot = slotOf(prefix[0]);
+            if (firstCandidate[slot] == NONE) {
+                keys[slot] = prefix[0];
+                firstCandidate[slot] = i;
+            } else {
+                nextCandidate[lastCandidate[slot]] = i;
+            }
+            lastCandidate[slot] = i;
+        }
+    }
+
+    /**
+     * 年号の表から索引を作成する
+     * @param table 年号の表(先頭から順に優先)
+     */
+    static GengoIndex compile(List<GengoYearTable> table) {
+        return new GengoIndex(table);
+    }
+
+    /**
+     * 文字の先頭にある年号を探す
+     * @param src 正規化済み(小文字化済み)の文字
+     * @param length 文字数
+     * @return 年号の表の添字。見つからなければ -1
+     */
+    int find(char[] src, int length) {
+        if (length == 0) {
+            return NONE;
+        }
+        int slot = findSlot(src[0]);
+        if (slot == NONE) {
+            return NONE;
+        }
+        for (int i = firstCandidate[slot]; i != NONE; i = nextCandidate[i]) {
+            char[] prefix = prefixes[i];
+            if (prefix.length <= length && RegionMatches(src, prefix)) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * 年号
+     * @param index find が返した添字
+     */
+    GengoYearTable gengo(int index) {
+        return gengoTable[index];
+    }
+
+    /**
+     * 年号の期間の確認に使う GengoCalendar の年号
+     * @param index find が返した添字
+     * @return 期間がわからない年号(独自の yearAdd)の場合は GengoCalendar.NONE
+     */
+    int era(int index) {
+        return eras[index];
+    }
+
+    /**
+     * 一致した表記の文字数(数字の切り出しはこの位置から始めればよい)
+     * @param index find が返した添字
+     */
+    int prefixLength(int index) {
+        return prefixes[index].length;
+    }
+
+    private int slotOf(char c) {
+        int slot = Hash(c) & mask;
+        while (firstCandidate[slot] != NONE && keys[slot] != c) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findSlot(char c) {
+        int slot = Hash(c) & mask;
+        while (firstCandidate[slot] != NONE) {
+            if (keys[slot] == c) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private static int Hash(char c) {
+        int h = c * 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean RegionMatches(char[] src, char[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (src[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
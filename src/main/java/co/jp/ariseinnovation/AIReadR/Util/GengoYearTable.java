@@ -19,11 +19,14 @@ public class GengoYearTable {
     }
     
     // 和暦の定義
+    public static final GengoYearTable MEIJI = new GengoYearTable("明治", 1867);
+    public static final GengoYearTable TAISHO = new GengoYearTable("大正", 1911);
     public static final GengoYearTable SHOWA = new GengoYearTable("昭和", 1925);
     public static final GengoYearTable HEISEI = new GengoYearTable("平成", 1988);
     public static final GengoYearTable REIWA = new GengoYearTable("令和", 2018);
     
     // 略称の定義
+    // 明治・大正の英字1文字(M、T)は、曜日や英語月(Mon、Tue、Thu など)の先頭と区別できないので定義しない
     public static final GengoYearTable SHOWA_S = new GengoYearTable("S", 1925);
     public static final GengoYearTable HEISEI_H = new GengoYearTable("H", 1988);
     public static final GengoYearTable REIWA_R = new GengoYearTable("R", 2018);
@@ -31,11 +34,13 @@ public class GengoYearTable {
     public static final GengoYearTable SHOWA_1 = new GengoYearTable("昭", 1925);
     public static final GengoYearTable HEISEI_1 = new GengoYearTable("平", 1988);
     public static final GengoYearTable REIWA_1 = new GengoYearTable("令", 2018);
+    public static final GengoYearTable MEIJI_1 = new GengoYearTable("明", 1867);
+    public static final GengoYearTable TAISHO_1 = new GengoYearTable("大", 1911);
     
     // 全和暦のリスト
     public static final List<GengoYearTable> table = Arrays.asList(
-        SHOWA, HEISEI, REIWA,
+        SHOWA, HEISEI, REIWA, MEIJI, TAISHO,
         SHOWA_S, HEISEI_H, REIWA_R, REIWA_L,
-        SHOWA_1, HEISEI_1, REIWA_1
+        SHOWA_1, HEISEI_1, REIWA_1, MEIJI_1, TAISHO_1
     );
 }
@@ -0,0 +1,135 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.util.Arrays;
+
+/**
+ * 正規化済みの文字列から数字の並びを切り出すクラス
+ * NumberToken を作らずに、数字の開始・終了位置と値を再利用する配列に書き込む。
+ * 後続文字列(afterWord)は、数字の終了位置から次の数字の開始位置(最後の数字なら文字列の末尾)までとする。
+ * 配列を再利用するため、インスタンスはスレッド間で共有しないこと。
+ */
+public class NumberTokenizer {
+
+    private char[] src;
+    private int length;
+    private int count;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int[] values = new int[8];
+
+    /**
+     * 数字の並びを切り出す
+     * @param src 対象の文字
+     * @param length 対象の文字数
+     * @return int の範囲を超える数字があった場合 false (Integer.parseInt と同様に扱えない)
+     */
+    public boolean tokenize(char[] src, int length) {
+        return tokenize(src, 0, length);
+    }
+
+    /**
+     * 指定位置から数字の並びを切り出す
+     * @param src 対象の文字
+     * @param from 走査を開始する位置
+     * @param length 対象の文字数
+     * @return int の範囲を超える数字があった場合 false (Integer.parseInt と同様に扱えない)
+     */
+    public boolean tokenize(char[] src, int from, int length) {
+        this.src = src;
+        this.length = length;
+        this.count = 0;
+        int i = from;
+        while (i < length) {
+            char c = src[i];
+            if (c < '0' || c > '9') {
+                i++;
+                continue;
+            }
+            int start = i;
+            long value = 0;
+            while (i < length && src[i] >= '0' && src[i] <= '9') {
+                value = value * 10 + (src[i] - '0');
+                if (value > Integer.MAX_VALUE) {
+                    return false;
+                }
+                i++;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = i;
+            values[count] = (int) value;
+            count++;
+        }
+        return true;
+    }
+
+    /**
+     * 切り出した数字の数
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * 数字の開始位置
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * 数字の終了位置(この位置の文字は含まない)
+     */
+    public int end(int index) {
+        return ends[index];
+    }
+
+    /**
+     * 数字の桁数。先頭の0も数える(NumberToken.tokenAsString.length() に相当)
+     */
+    public int digitLength(int index) {
+        return ends[index] - starts[index];
+    }
+
+    /**
+     * 数字の値(NumberToken.token に相当)
+     */
+    public int value(int index) {
+        return values[index];
+    }
+
+    /**
+     * 後続文字列の終了位置(この位置の文字は含まない)
+     */
+    public int afterEnd(int index) {
+        return index + 1 < count ? starts[index + 1] : length;
+    }
+
+    /**
+     * 後続文字列に指定の文字が含まれているか(NumberToken.HasAfter に相当)
+     */
+    public boolean hasAfter(int index, char word) {
+        for (int i = ends[index], end = afterEnd(index); i < end; i++) {
+            if (src[i] == word) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 後続文字列が空、または空白のみか(AIReadEEUtil.isNullOrWhiteSpace に相当)
+     */
+    public boolean isAfterBlank(int index) {
+        for (int i = ends[index], end = afterEnd(index); i < end; i++) {
+            if (src[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
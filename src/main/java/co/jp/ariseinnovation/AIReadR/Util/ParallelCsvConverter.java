@@ -0,0 +1,263 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 1つの大きな CSV を複数のスレッドで変換する(CsvDateConverter、CsvWarekiConverter の --threads)
+ * 入力をレコードの区切り(引用符の中の改行は区切りにしない)でチャンクに分け、チャンクごとにスレッドプールで変換する。
+ * 変換結果とチャンクごとの変換のログは投入した順に出力するので、出力の行とログの順序は入力と同じになる。
+ * 投入済みで未出力のチャンクはスレッド数の2倍までとし、メモリの使用量は入力の大きさによらない。
+ * FileChannel から読み込む場合は、ファイルを窓の単位でメモリに割り当て、チャンクはその窓の範囲として
+ * 各スレッドに渡す(チャンクの内容をコピーせず、すべてのスレッドが同じ割り当てを読む)。
+ */
+final class ParallelCsvConverter {
+
+    /** チャンクの既定のバイト数 */
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * チャンクを変換する処理。複数のスレッドから同時に呼び出される
+     */
+    interface ChunkConverter {
+        /**
+         * @param reader チャンクを読み込む CsvReader
+         * @param out 変換結果
+         * @param log 変換のログ。チャンクの順に convert の log に出力する
+         * @return 変換された行数
+         */
+        int convert(CsvReader reader, OutputStream out, Appendable log) throws IOException;
+    }
+
+    /**
+     * 読み込んだ行数(レコード数)と変換された行数
+     */
+    static final class Result {
+        long records;
+        long converted;
+    }
+
+    private final Charset charset;
+    private final int threads;
+    private final int chunkSize;
+    private final ChunkConverter converter;
+
+    /**
+     * @param charset 入力の文字コード(CsvReader で扱えるもの)
+     * @param threads 変換するスレッドの数
+     * @param chunkSize チャンクのバイト数。これより長いレコードはチャンクを広げて読む
+     * @param converter チャンクを変換する処理
+     */
+    ParallelCsvConverter(Charset charset, int threads, int chunkSize, ChunkConverter converter) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("スレッド数は1以上で指定してください: " + threads);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("チャンクのバイト数は1以上で指定してください: " + chunkSize);
+        }
+        if (!CsvReader.IsAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("区切り文字・引用符・改行を1バイトで表す文字コードを指定してください: " + charset);
+        }
+        this.charset = charset;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.converter = converter;
+    }
+
+    /**
+     * in の終わりまでを変換して out に書き込む(in、out は閉じない)
+     * @param in レコードの先頭から始まる入力
+     * @param log 変換のログの出力先
+     */
+    Result convert(InputStream in, OutputStream out, Appendable log) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            return convert(in, out, log, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * ファイルの start から終わりまでを変換して out に書き込む(channel、out は閉じない)
+     * @param start レコードの先頭の位置(ヘッダー行の次など)
+     * @param log 変換のログの出力先
+     */
+    Result convert(FileChannel channel, long start, OutputStream out, Appendable log) throws IOException {
+        return convert(channel, start, CsvReader.DEFAULT_WINDOW_SIZE, out, log);
+    }
+
+    /**
+     * @param windowSize 一度にメモリに割り当てるバイト数。これより長いレコードは窓を広げて読む
+     */
+    Result convert(FileChannel channel, long start, int windowSize, OutputStream out, Appendable log) throws IOException {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("窓のバイト数は1以上で指定してください: " + windowSize);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            return convert(channel, start, windowSize, out, log, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Result convert(FileChannel channel, long start, int windowSize, OutputStream out, Appendable log,
+            ExecutorService pool) throws IOException {
+        Result result = new Result();
+        ArrayDeque<Future<ChunkResult>> pending = new ArrayDeque<>();
+        int maxPending = threads * 2;
+        long size = channel.size();
+        long offset = start;
+        while (offset < size) {
+            int length = (int) Math.min(windowSize, size - offset);
+            boolean last = offset + length == size;
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            int pos = 0;
+            while (pos < length) {
+                int end = (int) Math.min((long) pos + chunkSize, length);
+                int boundary;
+                while (true) {
+                    boundary = last && end == length ? length : CsvReader.LastRecordBoundary(window, pos, end);
+                    if (boundary > 0 || end == length) {
+                        break;
+                    }
+                    // チャンクに収まらないレコード。窓の中でチャンクを広げる
+                    end = (int) Math.min(pos + 2L * (end - pos), length);
+                }
+                if (boundary <= 0) {
+                    break; // 窓の終わりまでにレコードが終わらない。次の窓で読む
+                }
+                ByteBuffer chunk = window.duplicate();
+                chunk.limit(boundary);
+                chunk.position(pos);
+                pending.add(pool.submit(() -> convertChunk(chunk)));
+                while (pending.size() >= maxPending) {
+                    write(pending.poll(), out, log, result);
+                }
+                pos = boundary;
+            }
+            if (pos == 0) {
+                // 窓に収まらないレコード。窓を広げて割り当て直す
+                if (windowSize == Integer.MAX_VALUE) {
+                    throw new IOException("レコードが長すぎます(" + offset + "バイト目から)");
+                }
+                windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+            }
+            offset += pos;
+        }
+        while (!pending.isEmpty()) {
+            write(pending.poll(), out, log, result);
+        }
+        return result;
+    }
+
+    private Result convert(InputStream in, OutputStream out, Appendable log, ExecutorService pool) throws IOException {
+        Result result = new Result();
+        // 並べ替えのバッファ。先頭から順に、変換が終わるのを待って出力する
+        ArrayDeque<Future<ChunkResult>> pending = new ArrayDeque<>();
+        int maxPending = threads * 2;
+        byte[] carry = new byte[0];
+        int carryLength = 0;
+        int size = chunkSize;
+        boolean eof = false;
+        while (!eof) {
+            byte[] chunk = Arrays.copyOf(carry, Math.max(size, carryLength + 1));
+            int length = carryLength;
+            while (length < chunk.length) {
+                int n = in.read(chunk, length, chunk.length - length);
+                if (n < 0) {
+                    eof = true;
+                    break;
+                }
+                length += n;
+            }
+            int boundary = eof ? length : CsvReader.LastRecordBoundary(chunk, 0, length);
+            if (boundary <= 0) {
+                if (eof) {
+                    break;
+                }
+                // チャンクに収まらないレコード。チャンクを広げて続きを読む
+                carry = chunk;
+                carryLength = length;
+                size = chunk.length * 2;
+                continue;
+            }
+            carryLength = length - boundary;
+            carry = Arrays.copyOfRange(chunk, boundary, length);
+            size = chunkSize;
+            pending.add(pool.submit(() -> convertChunk(ByteBuffer.wrap(chunk, 0, boundary))));
+            while (pending.size() >= maxPending) {
+                write(pending.poll(), out, log, result);
+            }
+        }
+        while (!pending.isEmpty()) {
+            write(pending.poll(), out, log, result);
+        }
+        return result;
+    }
+
+    /**
+     * @param chunk position から limit までがチャンク
+     */
+    private ChunkResult convertChunk(ByteBuffer chunk) throws IOException {
+        int length = chunk.remaining();
+        CsvReader reader = new CsvReader(chunk, charset);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length + length / 8);
+        StringBuilder log = new StringBuilder();
+        int converted = converter.convert(reader, out, log);
+        return new ChunkResult(out, log, reader.recordNumber(), converted);
+    }
+
+    private static void write(Future<ChunkResult> future, OutputStream out, Appendable log, Result result) throws IOException {
+        ChunkResult chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("変換が中断されました", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("チャンクの変換でエラーが発生しました", e.getCause());
+        }
+        chunk.out.writeTo(out);
+        if (chunk.log.length() > 0) {
+            log.append(chunk.log);
+        }
+        result.records += chunk.records;
+        result.converted += chunk.converted;
+    }
+
+    /**
+     * 1つのチャンクの変換結果
+     */
+    private static final class ChunkResult {
+        final ByteArrayOutputStream out;
+        final StringBuilder log;
+        final long records;
+        final int converted;
+
+        ChunkResult(ByteArrayOutputStream out, StringBuilder log, long records, int converted) {
+            this.out = out;
+            this.log = log;
+            this.records = records;
+            this.converted = converted;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+/**
+ * DateParser.parseAll の集計(件数と、失敗の理由ごとの件数)
+ * 各値の結果は呼び出し元が渡した配列に書き込まれるので、ここには件数だけを持つ。
+ */
+public final class ParseBatchResult {
+
+    private static final int STATUS_COUNT = ParseStatus.values().length;
+
+    /** ParseStatus.getCode() ごとの件数 */
+    private final int[] statusCounts;
+
+    ParseBatchResult(int[] statusCounts) {
+        this.statusCounts = statusCounts;
+    }
+
+    /**
+     * ParseStatus.getCode() ごとの件数を数える配列
+     */
+    static int[] NewCounts() {
+        return new int[STATUS_COUNT];
+    }
+
+    /**
+     * パースした件数
+     */
+    public int getCount() {
+        int count = 0;
+        for (int statusCount : statusCounts) {
+            count += statusCount;
+        }
+        return count;
+    }
+
+    public int getSuccessCount() {
+        return statusCounts[ParseStatus.OK.getCode()];
+    }
+
+    public int getFailureCount() {
+        return getCount() - getSuccessCount();
+    }
+
+    /**
+     * 結果が status だった件数
+     */
+    public int getCount(ParseStatus status) {
+        return statusCounts[status.getCode()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ParseBatchResult{count=").append(getCount());
+        for (ParseStatus status : ParseStatus.values()) {
+            if (statusCounts[status.getCode()] > 0) {
+                sb.append(", ").append(status).append('=').append(statusCounts[status.getCode()]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,443 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * DateParser の前に置く、パース結果のキャッシュ
+ * OCR結果は同じ文字列(H10.5、令和6.1.1 など)が何度も現れるため、正規化した入力文字列と基準値の年月をキーに
+ * パース結果(yyyymmdd または失敗の理由)を保存する。基準値の月は 12月→前年 の判定に使うのでキーに含める。
+ * * キャッシュは1つの DateParser の前に置く。キーはその DateParser の正規化(全角→半角、漢数字→数字など)の結果なので、
+ *   Ｈ１０．５ と H10.5 のように正規化すると同じになる文字列は同じキーになる(パースは正規化した文字だけを読む)。
+ * * 件数と推定バイト数の上限を持ち、超える場合は追い出し方針(Policy)に従って追い出す。
+ * * 読み込みはロックしない。追い出し方針への参照の記録は、ロックが取れない場合は省略する(取りこぼしてもよい統計)。
+ * * ヒット数・ミス数を返すので、上限の見積もりに使う。
+ */
+public final class ParseCache {
+
+    /** 1件あたりの固定の推定バイト数(キー、値、ハッシュ表と追い出し方針の管理領域) */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final DateParser parser;
+    private final int maximumEntries;
+    private final long maximumBytes;
+    private final Policy policy;
+    private final ConcurrentHashMap<Key, Entry> map = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private long bytes;
+
+    /**
+     * DateParser.getDefault() の前に置くキャッシュ
+     * @param maximumEntries 最大件数
+     * @param maximumBytes 最大の推定バイト数
+     * @param policy 追い出し方針。キャッシュごとに新しく作成すること
+     */
+    public ParseCache(int maximumEntries, long maximumBytes, Policy policy) {
+        this(DateParser.getDefault(), maximumEntries, maximumBytes, policy);
+    }
+
+    /**
+     * @param parser キャッシュにない場合にパースする DateParser
+     * @param maximumEntries 最大件数
+     * @param maximumBytes 最大の推定バイト数
+     * @param policy 追い出し方針。キャッシュごとに新しく作成すること
+     */
+    public ParseCache(DateParser parser, int maximumEntries, long maximumBytes, Policy policy) {
+        if (parser == null) {
+            throw new IllegalArgumentException("DateParser を指定してください");
+        }
+        if (maximumEntries <= 0 || maximumBytes <= 0) {
+            throw new IllegalArgumentException("キャッシュの上限は1以上で指定してください");
+        }
+        this.parser = parser;
+        this.maximumEntries = maximumEntries;
+        this.maximumBytes = maximumBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * LRU で追い出すキャッシュ
+     */
+    public static ParseCache lru(int maximumEntries, long maximumBytes) {
+        return lru(DateParser.getDefault(), maximumEntries, maximumBytes);
+    }
+
+    /**
+     * parser の前に置く、LRU で追い出すキャッシュ
+     */
+    public static ParseCache lru(DateParser parser, int maximumEntries, long maximumBytes) {
+        return new ParseCache(parser, maximumEntries, maximumBytes, new LruPolicy());
+    }
+
+    /**
+     * 参照頻度の低い文字列を入れないキャッシュ(一度しか現れない誤読で頻出の文字列を追い出さない)
+     */
+    public static ParseCache frequencyAware(int maximumEntries, long maximumBytes) {
+        return frequencyAware(DateParser.getDefault(), maximumEntries, maximumBytes);
+    }
+
+    /**
+     * parser の前に置く、参照頻度の低い文字列を入れないキャッシュ
+     */
+    public static ParseCache frequencyAware(DateParser parser, int maximumEntries, long maximumBytes) {
+        return new ParseCache(parser, maximumEntries, maximumBytes, new FrequencyAwarePolicy(maximumEntries));
+    }
+
+    /**
+     * キャッシュにない場合にパースする DateParser
+     */
+    public DateParser getParser() {
+        return parser;
+    }
+
+    /**
+     * キャッシュを使って DateParser.parse を行う
+     */
+    public ParseResult tryParse(CharSequence src, ParseContext context) {
+        if (src == null) {
+            return parser.parse(null, context);
+        }
+        Entry entry = get(src, context, DateParser.CurrentScratch());
+        return entry.nanoOfDay >= 0 ? ParseResult.ofPacked(entry.packed, entry.nanoOfDay) : ParseResult.ofPacked(entry.packed);
+    }
+
+    /**
+     * キャッシュを使って DateParser.parsePacked を行う
+     */
+    public int parseToPackedInt(CharSequence src, ParseContext context) {
+        return parsePacked(src, context, DateParser.CurrentScratch());
+    }
+
+    /**
+     * まとめてパースする場合に、呼び出し元の作業領域を使う
+     */
+    int parsePacked(CharSequence src, ParseContext context, DateParser.ParseScratch scratch) {
+        if (src == null) {
+            return parser.parsePacked(null, context);
+        }
+        return get(src, context, scratch).packed;
+    }
+
+    /**
+     * キャッシュを使って DateParser.parseBatch を行う
+     * @see DateParser#parseBatch(CharSequence[], int[], byte[], ParseContext, ParseCache)
+     */
+    public ParseBatchResult parseAll(CharSequence[] src, int[] outPacked, byte[] outStatus, ParseContext context) {
+        return parser.parseBatch(src, outPacked, outStatus, context, this);
+    }
+
+    private Entry get(CharSequence src, ParseContext context, DateParser.ParseScratch scratch) {
+        Key key = new Key(parser.normalize(src, scratch), context.getBasisYear(), context.getBasisMonth());
+        Entry entry = map.get(key);
+        if (entry != null) {
+            hitCount.increment();
+            if (lock.tryLock()) {
+                try {
+                    policy.recordAccess(key);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return entry;
+        }
+        missCount.increment();
+        // キーを作った正規化済みの文字をそのままパースする
+        ParseResult result = parser.parseNormalized(scratch, context);
+        entry = new Entry(result.getPacked(), result.getNanoOfDay(), ENTRY_OVERHEAD_BYTES + key.input.length() * 2);
+        put(key, entry);
+        return entry;
+    }
+
+    private void put(Key key, Entry entry) {
+        if (entry.bytes > maximumBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            policy.recordAccess(key);
+            if (map.containsKey(key)) {
+                return;
+            }
+            if (map.size() >= maximumEntries || bytes + entry.bytes > maximumBytes) {
+                // 入れるかどうかは最初の候補と比べて1回だけ決め、入れる場合だけまとめて追い出す(入れないのに減らさない)
+                Iterator<Key> candidates = policy.victims();
+                if (!candidates.hasNext()) {
+                    return;
+                }
+                Key first = candidates.next();
+                if (!policy.admit(key, first)) {
+                    return;
+                }
+                List<Key> victims = new ArrayList<>();
+                int entries = map.size();
+                long remainingBytes = bytes;
+                for (Key victim = first; ; victim = candidates.next()) {
+                    victims.add(victim);
+                    Entry candidate = map.get(victim);
+                    if (candidate != null) {
+                        entries--;
+                        remainingBytes -= candidate.bytes;
+                    }
+                    if (entries < maximumEntries && remainingBytes + entry.bytes <= maximumBytes) {
+                        break;
+                    }
+                    if (!candidates.hasNext()) {
+                        return;
+                    }
+                }
+                for (Key victim : victims) {
+                    Entry removed = map.remove(victim);
+                    policy.onRemove(victim);
+                    if (removed != null) {
+                        bytes -= removed.bytes;
+                    }
+                }
+            }
+            map.put(key, entry);
+            policy.onInsert(key);
+            bytes += entry.bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * すべて削除する(ヒット数・ミス数は残す)
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (Key key : map.keySet()) {
+                policy.onRemove(key);
+            }
+            map.clear();
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * 保存している結果の推定バイト数
+     */
+    public long estimatedBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ParseCache{size=" + size() + ", bytes=" + estimatedBytes() + ", hit=" + hitCount() + ", miss=" + missCount() + "}";
+    }
+
+    /**
+     * 追い出し方針。ParseCache のロックの中から呼ばれるので、実装はスレッドセーフでなくてよい。
+     */
+    public interface Policy {
+
+        /**
+         * キーが参照された(ヒット・ミスとも)
+         */
+        void recordAccess(Key key);
+
+        /**
+         * キーを追加した
+         */
+        void onInsert(Key key);
+
+        /**
+         * キーを削除した
+         */
+        void onRemove(Key key);
+
+        /**
+         * 追い出す候補を追い出す順に返す。ParseCache は候補を決めてから追い出すので、返した後に onRemove が呼ばれる
+         * @return 候補がない場合は空
+         */
+        Iterator<Key> victims();
+
+        /**
+         * 候補を追い出して新しいキーを入れてよいか
+         * @param candidate 追加しようとしているキー
+         * @param victim 最初に追い出す候補(入れる場合は、バイト数が足りるまで後の候補も追い出す)
+         */
+        boolean admit(Key candidate, Key victim);
+    }
+
+    /**
+     * 最も長く参照されていないものから追い出す
+     */
+    public static class LruPolicy implements Policy {
+
+        private final LinkedHashMap<Key, Boolean> order = new LinkedHashMap<>(16, 0.75f, true);
+
+        @Override
+        public void recordAccess(Key key) {
+            order.get(key);
+        }
+
+        @Override
+        public void onInsert(Key key) {
+            order.put(key, Boolean.TRUE);
+        }
+
+        @Override
+        public void onRemove(Key key) {
+            order.remove(key);
+        }
+
+        @Override
+        public Iterator<Key> victims() {
+            return order.keySet().iterator();
+        }
+
+        @Override
+        public boolean admit(Key candidate, Key victim) {
+            return true;
+        }
+    }
+
+    /**
+     * LRU の候補と比べて、参照頻度が高い場合だけ入れる(TinyLFU)
+     * 頻度は Count-Min Sketch で近似し、一定回数ごとに半分にして古い頻度を忘れる。
+     */
+    public static class FrequencyAwarePolicy extends LruPolicy {
+
+        private static final int DEPTH = 4;
+        private static final int MAXIMUM_COUNT = 15;
+        private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final int[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        /**
+         * @param maximumEntries キャッシュの最大件数(頻度表の大きさの目安)
+         */
+        public FrequencyAwarePolicy(int maximumEntries) {
+            int width = Integer.highestOneBit(Math.max(16, Math.min(maximumEntries, 1 << 24)) - 1) << 1;
+            this.counters = new int[DEPTH * width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, maximumEntries);
+        }
+
+        @Override
+        public void recordAccess(Key key) {
+            super.recordAccess(key);
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (counters[index] < MAXIMUM_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        @Override
+        public boolean admit(Key candidate, Key victim) {
+            return frequency(candidate) > frequency(victim);
+        }
+
+        int frequency(Key key) {
+            int hash = key.hashCode();
+            int frequency = MAXIMUM_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9E3779B1;
+            h ^= h >>> 16;
+            return row * (mask + 1) + (h & mask);
+        }
+
+        private void reset() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] >>>= 1;
+            }
+            additions /= 2;
+        }
+    }
+
+    /**
+     * キャッシュのキー(正規化した入力文字列と基準値の年月)
+     */
+    public static final class Key {
+
+        final String input;
+        final int basisYear;
+        final int basisMonth;
+        private final int hash;
+
+        Key(String input, int basisYear, int basisMonth) {
+            this.input = input;
+            this.basisYear = basisYear;
+            this.basisMonth = basisMonth;
+            this.hash = (input.hashCode() * 31 + basisYear) * 31 + basisMonth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && basisYear == other.basisYear && basisMonth == other.basisMonth && input.equals(other.input);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 保存するパース結果
+     */
+    private static final class Entry {
+
+        final int packed;
+        final long nanoOfDay;
+        final int bytes;
+
+        Entry(int packed, long nanoOfDay, int bytes) {
+            this.packed = packed;
+            this.nanoOfDay = nanoOfDay;
+            this.bytes = bytes;
+        }
+    }
+}
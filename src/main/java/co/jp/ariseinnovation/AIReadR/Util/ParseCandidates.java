@@ -0,0 +1,161 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.util.Arrays;
+
+/**
+ * DateParser.parseCandidates の結果。曖昧な値(yyMMdd と yyyyMM、令和と20xx年 など)の読み方の候補
+ * 候補は yyyymmdd の数値と、候補になった理由のフラグ、基準値からの距離(月数)を持つ。
+ * 並び順は、tryParse が選ぶ候補が先頭、続けて基準値に近い順(同じ距離なら日付の昇順)。
+ * 日付として検証できない読み方は含めない。
+ */
+public final class ParseCandidates {
+
+    /** tryParse が選ぶ読み方 */
+    public static final int SELECTED = 1;
+    /** 年号のない2桁の年を20xx年として読んだ */
+    public static final int SEIREKI_2000S = 2;
+    /** 年号のない年を令和として読んだ */
+    public static final int REIWA_OMITTED = 4;
+    /** つながった数字の区切り方(yyMMdd と yyyyMM、eMM と eeM など)の1つ */
+    public static final int SPLIT_ALTERNATIVE = 8;
+
+    private final ParseStatus status;
+    private final int[] packed;
+    private final int[] flags;
+    private final int[] scores;
+
+    private ParseCandidates(ParseStatus status, int[] packed, int[] flags, int[] scores) {
+        this.status = status;
+        this.packed = packed;
+        this.flags = flags;
+        this.scores = scores;
+    }
+
+    /**
+     * tryParse の結果の状態。失敗した場合でも、ほかの読み方の候補を持つことがある
+     */
+    public ParseStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * 候補の数
+     */
+    public int size() {
+        return packed.length;
+    }
+
+    public boolean isEmpty() {
+        return packed.length == 0;
+    }
+
+    /**
+     * 候補の yyyymmdd
+     */
+    public int getPacked(int index) {
+        return packed[index];
+    }
+
+    /**
+     * 候補になった理由(SELECTED、SEIREKI_2000S、REIWA_OMITTED、SPLIT_ALTERNATIVE の組み合わせ)
+     */
+    public int getFlags(int index) {
+        return flags[index];
+    }
+
+    public boolean hasFlag(int index, int flag) {
+        return (flags[index] & flag) != 0;
+    }
+
+    /**
+     * 基準値の年月からの距離(月数)。小さいほど基準値に近い
+     */
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    public ParseResult getResult(int index) {
+        return ParseResult.ofPacked(packed[index]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ParseCandidates{status=").append(status);
+        for (int i = 0; i < packed.length; i++) {
+            sb.append(", ").append(packed[i]).append("(score=").append(scores[i]).append(", flags=").append(flags[i]).append(')');
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * 候補を集めて、重複を除いて並べる
+     */
+    static final class Builder {
+
+        private int[] packed = new int[8];
+        private int[] flags = new int[8];
+        private int count;
+
+        /**
+         * 候補を追加する。同じ日付が追加済みの場合は理由を合わせる
+         * @param packedDate yyyymmdd。負の値(検証できない読み方)は追加しない
+         */
+        Builder add(int packedDate, int flag) {
+            if (packedDate < 0) {
+                return this;
+            }
+            for (int i = 0; i < count; i++) {
+                if (packed[i] == packedDate) {
+                    flags[i] |= flag;
+                    return this;
+                }
+            }
+            if (count == packed.length) {
+                packed = Arrays.copyOf(packed, count * 2);
+                flags = Arrays.copyOf(flags, count * 2);
+            }
+            packed[count] = packedDate;
+            flags[count] = flag;
+            count++;
+            return this;
+        }
+
+        /**
+         * @param selected tryParse の結果(yyyymmdd または失敗を示す負の値)
+         */
+        ParseCandidates build(int selected, int basisYear, int basisMonth) {
+            add(selected, SELECTED);
+            int basis = basisYear * 12 + basisMonth - 1;
+            Integer[] order = new Integer[count];
+            int[] scores = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+                if (packed[i] == selected) {
+                    // 選ばれた読み方は「選ばれなかった区切り方」ではない
+                    flags[i] &= ~SPLIT_ALTERNATIVE;
+                }
+                scores[i] = Math.abs(packed[i] / 10000 * 12 + packed[i] / 100 % 100 - 1 - basis);
+            }
+            Arrays.sort(order, (a, b) -> {
+                boolean aSelected = (flags[a] & SELECTED) != 0;
+                boolean bSelected = (flags[b] & SELECTED) != 0;
+                if (aSelected != bSelected) {
+                    return aSelected ? -1 : 1;
+                }
+                if (scores[a] != scores[b]) {
+                    return Integer.compare(scores[a], scores[b]);
+                }
+                return Integer.compare(packed[a], packed[b]);
+            });
+            int[] sortedPacked = new int[count];
+            int[] sortedFlags = new int[count];
+            int[] sortedScores = new int[count];
+            for (int i = 0; i < count; i++) {
+                sortedPacked[i] = packed[order[i]];
+                sortedFlags[i] = flags[order[i]];
+                sortedScores[i] = scores[order[i]];
+            }
+            return new ParseCandidates(ParseStatus.ofPacked(selected), sortedPacked, sortedFlags, sortedScores);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * パースの基準値(この日に近い日付が選択される)
+ * 「今」を1回だけ求めて、バッチやスレッドの間で使い回す。パースのたびに時計やタイムゾーンを参照しない。
+ * 作成後は変更しないため、スレッド間で共有できる。
+ */
+public final class ParseContext {
+
+    private final int basisYear;
+    private final int basisMonth;
+
+    private ParseContext(int basisYear, int basisMonth) {
+        if (basisMonth < 1 || basisMonth > 12) {
+            throw new IllegalArgumentException("基準値の月は1～12で指定してください: " + basisMonth);
+        }
+        this.basisYear = basisYear;
+        this.basisMonth = basisMonth;
+    }
+
+    /**
+     * 年月を指定して作成する
+     * @param basisYear 基準値の年
+     * @param basisMonth 基準値の月(1～12)
+     */
+    public static ParseContext of(int basisYear, int basisMonth) {
+        return new ParseContext(basisYear, basisMonth);
+    }
+
+    /**
+     * 日付を指定して作成する
+     * @param basisDate 基準値の日付
+     */
+    public static ParseContext of(LocalDate basisDate) {
+        return new ParseContext(basisDate.getYear(), basisDate.getMonthValue());
+    }
+
+    /**
+     * 既定のタイムゾーンの「今」で作成する
+     */
+    public static ParseContext now() {
+        return now(Clock.systemDefaultZone());
+    }
+
+    /**
+     * 時計の「今」で作成する
+     * @param clock 時計(テストでは Clock.fixed などを渡す)
+     */
+    public static ParseContext now(Clock clock) {
+        return of(LocalDate.now(clock));
+    }
+
+    public int getBasisYear() {
+        return basisYear;
+    }
+
+    public int getBasisMonth() {
+        return basisMonth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%04d-%02d", basisYear, basisMonth);
+    }
+}
@@ -0,0 +1,120 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+
+/**
+ * DateParser.tryParse の結果
+ * パースできた場合は年月日を、できなかった場合は理由(ParseStatus)を持つ。
+ */
+public final class ParseResult {
+
+    private final ParseStatus status;
+    private final int packed;
+    /** 0時からのナノ秒。時刻がない場合は -1 */
+    private final long nanoOfDay;
+
+    private ParseResult(ParseStatus status, int packed, long nanoOfDay) {
+        this.status = status;
+        this.packed = packed;
+        this.nanoOfDay = nanoOfDay;
+    }
+
+    /**
+     * parseToPackedInt の戻り値から結果を作成する
+     * @param packed yyyymmdd または失敗を示す負の値
+     */
+    public static ParseResult ofPacked(int packed) {
+        return new ParseResult(ParseStatus.ofPacked(packed), packed, -1);
+    }
+
+    /**
+     * 時刻付きの結果を作成する
+     * @param packed yyyymmdd
+     * @param nanoOfDay 0時からのナノ秒
+     */
+    static ParseResult ofPacked(int packed, long nanoOfDay) {
+        return new ParseResult(ParseStatus.ofPacked(packed), packed, nanoOfDay);
+    }
+
+    public boolean isSuccess() {
+        return status == ParseStatus.OK;
+    }
+
+    public ParseStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * yyyymmdd の数値。失敗した場合は負の値
+     */
+    public int getPacked() {
+        return packed;
+    }
+
+    public int getYear() {
+        checkSuccess();
+        return packed / 10000;
+    }
+
+    public int getMonth() {
+        checkSuccess();
+        return packed / 100 % 100;
+    }
+
+    public int getDay() {
+        checkSuccess();
+        return packed % 100;
+    }
+
+    /**
+     * パースした日付。年月日は検証済みなので、タイムゾーンに依存しない LocalDate で返す
+     */
+    public LocalDate toLocalDate() {
+        checkSuccess();
+        return LocalDate.of(getYear(), getMonth(), getDay());
+    }
+
+    /**
+     * 時刻付きの文字列(2025-08-26T18:50:47 など)をパースした場合 true
+     */
+    public boolean hasTime() {
+        return nanoOfDay >= 0;
+    }
+
+    /**
+     * 0時からのナノ秒。時刻がない場合は -1
+     */
+    long getNanoOfDay() {
+        return nanoOfDay;
+    }
+
+    /**
+     * パースした日時。時刻がない場合は 0:00
+     */
+    public LocalDateTime toLocalDateTime() {
+        checkSuccess();
+        return LocalDateTime.of(toLocalDate(), hasTime() ? LocalTime.ofNanoOfDay(nanoOfDay) : LocalTime.MIDNIGHT);
+    }
+
+    /**
+     * パースした年月(yyyyMM への変換などに使う)
+     */
+    public YearMonth toYearMonth() {
+        checkSuccess();
+        return YearMonth.of(getYear(), getMonth());
+    }
+
+    private void checkSuccess() {
+        if (!isSuccess()) {
+            throw new IllegalStateException("パースできなかった結果です: " + status);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? String.format("%04d-%02d-%02d", getYear(), getMonth(), getDay()) : status.toString();
+    }
+}
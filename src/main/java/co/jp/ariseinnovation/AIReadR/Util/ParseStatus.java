@@ -0,0 +1,59 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+/**
+ * 日付のパース結果の状態
+ * parseToPackedInt では、失敗を -code の負の値で返す。
+ */
+public enum ParseStatus {
+
+    /** パースできた */
+    OK(0),
+    /** 空文字 */
+    EMPTY(1),
+    /** 数字が含まれていない */
+    NO_DIGITS(2),
+    /** 月が1～12の範囲外 */
+    BAD_MONTH(3),
+    /** 日がその月に存在しない */
+    BAD_DAY(4),
+    /** どの数字が年・月・日か判断できない */
+    AMBIGUOUS(5),
+    /** 年が範囲外、または数字が大きすぎる */
+    OUT_OF_RANGE(6),
+    /** 日付として認識できない */
+    UNRECOGNIZED(7),
+    /** 年号の期間外(H31.5、S64.2 など) */
+    OUT_OF_ERA(8);
+
+    private static final ParseStatus[] BY_CODE = values();
+
+    private final byte code;
+
+    ParseStatus(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * parseToPackedInt で返す値(OK は 0、失敗は負の値)
+     */
+    public int packed() {
+        return -code;
+    }
+
+    /**
+     * parseToPackedInt の戻り値から状態を求める
+     * @param packed yyyymmdd または失敗を示す負の値
+     * @return 0以上なら OK
+     */
+    public static ParseStatus ofPacked(int packed) {
+        if (packed >= 0) {
+            return OK;
+        }
+        int code = -packed;
+        return code < BY_CODE.length ? BY_CODE[code] : UNRECOGNIZED;
+    }
+}
@@ -0,0 +1,88 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DateParser のインスタンスが使う設定と、設定から作成した変換表
+ * 辞書は作成時にコピーしてから変換表を作成するので、作成後に元の辞書を変更しても影響しない。
+ * 作成後は変更しないため、スレッド間でロックせずに共有できる。
+ */
+public final class ParserConfig {
+
+    /** 西暦として扱う年の既定の範囲 */
+    public static final int DEFAULT_MINIMUM_YEAR = 1000;
+    public static final int DEFAULT_MAXIMUM_YEAR = 9999;
+
+    private final Map<String, String> halfToFullDictionary;
+    private final Map<String, String> englishMonthDictionary;
+    private final List<GengoYearTable> gengoTable;
+    private final int minimumYear;
+    private final int maximumYear;
+
+    final FullToHalfNormalizer.Table normalizerTable;
+    final EnglishMonthRecognizer englishMonthRecognizer;
+    /** gengoTable を先頭の文字で引く索引 */
+    final GengoIndex gengoIndex;
+
+    /**
+     * DateParser.Builder から作成する
+     * @param halfToFullDictionary 全角→半角、漢数字→数字の置換辞書(登録順に優先)
+     * @param englishMonthDictionary 英語月(2文字以上の英小文字)と月の数字(2桁)の辞書(登録順に優先)
+     * @param gengoTable 認識する年号(先頭から順に前方一致で探す)
+     * @param minimumYear 西暦として扱う年の最小値
+     * @param maximumYear 西暦として扱う年の最大値
+     */
+    ParserConfig(Map<String, String> halfToFullDictionary, Map<String, String> englishMonthDictionary,
+            List<GengoYearTable> gengoTable, int minimumYear, int maximumYear) {
+        if (minimumYear < 0 || maximumYear > DEFAULT_MAXIMUM_YEAR || minimumYear > maximumYear) {
+            throw new IllegalArgumentException("年の範囲は0～9999で指定してください: " + minimumYear + "～" + maximumYear);
+        }
+        this.halfToFullDictionary = Collections.unmodifiableMap(new LinkedHashMap<>(halfToFullDictionary));
+        this.englishMonthDictionary = Collections.unmodifiableMap(new LinkedHashMap<>(englishMonthDictionary));
+        this.gengoTable = Collections.unmodifiableList(new ArrayList<>(gengoTable));
+        this.minimumYear = minimumYear;
+        this.maximumYear = maximumYear;
+        this.normalizerTable = FullToHalfNormalizer.Table.compile(this.halfToFullDictionary);
+        this.englishMonthRecognizer = EnglishMonthRecognizer.compile(this.englishMonthDictionary);
+        this.gengoIndex = GengoIndex.compile(this.gengoTable);
+    }
+
+    /**
+     * DateParser.halfToFullDictionary、englishMonthDictionary、GengoYearTable.table から作成する既定の設定
+     */
+    public static ParserConfig defaults() {
+        return new ParserConfig(DateParser.halfToFullDictionary, DateParser.englishMonthDictionary, GengoYearTable.table,
+                DEFAULT_MINIMUM_YEAR, DEFAULT_MAXIMUM_YEAR);
+    }
+
+    public Map<String, String> getHalfToFullDictionary() {
+        return halfToFullDictionary;
+    }
+
+    public Map<String, String> getEnglishMonthDictionary() {
+        return englishMonthDictionary;
+    }
+
+    public List<GengoYearTable> getGengoTable() {
+        return gengoTable;
+    }
+
+    public int getMinimumYear() {
+        return minimumYear;
+    }
+
+    public int getMaximumYear() {
+        return maximumYear;
+    }
+
+    /**
+     * year が西暦として扱う範囲内か
+     */
+    boolean isYearInRange(int year) {
+        return year >= minimumYear && year <= maximumYear;
+    }
+}
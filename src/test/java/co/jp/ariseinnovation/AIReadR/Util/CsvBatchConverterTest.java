@@ -0,0 +1,124 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class CsvBatchConverterTest {
+
+    @Test
+    public void TestCsvBatchConverter() throws Exception {
+        Path directory = Files.createTempDirectory("CsvBatchConverter");
+        try {
+            String header = "ItemName,KeyWord,Value\r\n";
+            Files.write(directory.resolve("a.csv"), (header + "取得,,H10.5\r\n使用,,x\r\n").getBytes(StandardCharsets.UTF_8));
+            Files.write(directory.resolve("b.csv"), (header + "取得,null,\"R2.3\"\r\n").getBytes(StandardCharsets.UTF_8));
+            Files.write(directory.resolve("bad.csv"), "a,b\r\n".getBytes(StandardCharsets.UTF_8));
+            // 前回の出力は入力に含めない
+            Files.write(directory.resolve("a_converted.csv"), header.getBytes(StandardCharsets.UTF_8));
+
+            String[] targets = CsvDateConverter.normalizeLabels(Collections.singletonList("取得"));
+            ParseContext context = ParseContext.now();
+            CsvBatchConverter batch = new CsvBatchConverter(2, CsvBatchConverter.DEFAULT_OUTPUT_NAME, null,
+                    (input, output, log) -> CsvDateConverter.convertFile(input, output, targets, context, 1, log));
+            List<Path> inputs = batch.findInputs(directory.toString());
+            assertEquals(Arrays.asList(directory.resolve("a.csv"), directory.resolve("b.csv"), directory.resolve("bad.csv")), inputs);
+            assertEquals(Arrays.asList(directory.resolve("a.csv"), directory.resolve("b.csv")), batch.findInputs(directory + "/?.csv"));
+            assertEquals(directory.resolve("a_converted.csv"), batch.outputPath(directory.resolve("a.csv")));
+
+            StringBuilder log = new StringBuilder();
+            List<CsvBatchConverter.FileResult> results = batch.convert(inputs, log);
+            assertEquals(3, results.size());
+            assertTrue(results.get(0).isSuccess());
+            assertEquals(2, results.get(0).records);
+            assertEquals(1, results.get(0).converted);
+            assertEquals(header + "取得,,199805\r\n使用,,x\r\n",
+                    new String(Files.readAllBytes(directory.resolve("a_converted.csv")), StandardCharsets.UTF_8));
+            assertEquals(header + "取得,null,\"202003\"\r\n",
+                    new String(Files.readAllBytes(directory.resolve("b_converted.csv")), StandardCharsets.UTF_8));
+            // 失敗したファイルがあっても残りのファイルは変換する
+            assertFalse(results.get(2).isSuccess());
+            assertTrue(results.get(2).error instanceof IllegalArgumentException);
+            assertEquals("変換: 取得 = 'H10.5' → '199805'" + System.lineSeparator()
+                    + "変換: 取得 = 'R2.3' → '202003'" + System.lineSeparator(), log.toString());
+
+            // ファイルを並列に変換し、各ファイルもスレッドで分けて変換しても、ログはファイルの順にまとまる
+            StringBuilder rows = new StringBuilder(header);
+            for (int i = 1; i <= 30; i++) {
+                rows.append("取得,,H").append(i).append('.').append(i % 12 + 1).append("\r\n");
+            }
+            for (String name : new String[] { "c.csv", "d.csv", "e.csv" }) {
+                Files.write(directory.resolve(name), rows.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            List<Path> parallelInputs = Arrays.asList(directory.resolve("c.csv"), directory.resolve("d.csv"), directory.resolve("e.csv"));
+            StringBuilder sequentialLog = new StringBuilder();
+            new CsvBatchConverter(1, CsvBatchConverter.DEFAULT_OUTPUT_NAME, null,
+                    (input, output, fileLog) -> CsvDateConverter.convertFile(input, output, targets, context, 1, fileLog))
+                    .convert(parallelInputs, sequentialLog);
+            for (int run = 0; run < 3; run++) {
+                StringBuilder parallelLog = new StringBuilder();
+                new CsvBatchConverter(3, CsvBatchConverter.DEFAULT_OUTPUT_NAME, null,
+                        (input, output, fileLog) -> CsvDateConverter.convertFile(input, output, targets, context, 4, fileLog))
+                        .convert(parallelInputs, parallelLog);
+                assertEquals(sequentialLog.toString(), parallelLog.toString());
+            }
+            assertEquals(90, sequentialLog.toString().split(System.lineSeparator()).length);
+
+            // 出力先が別のディレクトリなら、規則に一致する名前でも入力から除かない
+            Path outputDirectory = directory.resolve("out");
+            CsvBatchConverter plain = new CsvBatchConverter(2, "{name}.csv", outputDirectory,
+                    (input, output, fileLog) -> CsvDateConverter.convertFile(input, output, targets, context, 1, fileLog));
+            assertEquals(Arrays.asList(directory.resolve("a.csv"), directory.resolve("b.csv")), plain.findInputs(directory + "/[ab].csv"));
+            assertEquals(outputDirectory.resolve("a.csv"), plain.outputPath(directory.resolve("a.csv")));
+            assertTrue(plain.convert(plain.findInputs(directory + "/[ab].csv"), new StringBuilder()).get(0).isSuccess());
+            assertEquals(header + "取得,,199805\r\n使用,,x\r\n",
+                    new String(Files.readAllBytes(outputDirectory.resolve("a.csv")), StandardCharsets.UTF_8));
+            // 出力先が入力と同じディレクトリなら、前回の出力を除く
+            CsvBatchConverter sameDirectory = new CsvBatchConverter(2, "{name}_converted.csv", directory, (input, output, fileLog) -> null);
+            assertFalse(sameDirectory.findInputs(directory.toString()).contains(directory.resolve("a_converted.csv")));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Collections.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void TestCsvBatchConverterInterrupted() throws Exception {
+        Path directory = Files.createTempDirectory("CsvBatchConverter");
+        try {
+            // 変換が終わらないうちに割り込まれた場合、結果を集めていないファイルは成功(0行)ではなく失敗になる
+            CountDownLatch never = new CountDownLatch(1);
+            CsvBatchConverter batch = new CsvBatchConverter(2, CsvBatchConverter.DEFAULT_OUTPUT_NAME, null, (input, output, log) -> {
+                never.await();
+                return new ParallelCsvConverter.Result();
+            });
+            List<Path> inputs = Arrays.asList(directory.resolve("a.csv"), directory.resolve("b.csv"), directory.resolve("c.csv"));
+            Thread.currentThread().interrupt();
+            List<CsvBatchConverter.FileResult> results;
+            try {
+                results = batch.convert(inputs, new StringBuilder());
+            } finally {
+                assertTrue(Thread.interrupted());
+            }
+            assertEquals(3, results.size());
+            for (CsvBatchConverter.FileResult result : results) {
+                assertFalse(result.isSuccess());
+                assertTrue(result.error instanceof InterruptedException);
+            }
+        } finally {
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CsvReaderTest {
+
+    @Test
+    public void TestCsvReader() throws IOException {
+        String csv = "\"ItemName\",\"Value\"\r\n"
+                + "取得,\"H10,5\"\r\n"
+                + "\"say \"\"hi\"\"\",\"2行\r\nの値\"\n"
+                + "\n"
+                + "a\"b,\"\"\r"
+                + "\"ab\"cd,last";
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        // バッファの終わりでレコードが切れる場合(バッファを広げる・詰める)も同じ結果になる
+        for (int bufferSize : new int[] { 1, 3, 7, CsvReader.DEFAULT_BUFFER_SIZE }) {
+            try (CsvReader reader = new CsvReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, bufferSize)) {
+                AssertCsvRecords(reader);
+            }
+        }
+        AssertCsvRecords(new CsvReader(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8));
+        // メモリに割り当てて読み込む場合、窓の終わりでレコードが切れても(窓を割り当て直す・広げる)同じ結果になる
+        Path file = Files.createTempFile("CsvReader", ".csv");
+        try {
+            Files.write(file, bytes);
+            for (int windowSize : new int[] { 1, 3, 7, CsvReader.DEFAULT_WINDOW_SIZE }) {
+                try (CsvReader mapped = new CsvReader(FileChannel.open(file), StandardCharsets.UTF_8, windowSize)) {
+                    assertTrue(mapped.next());
+                    assertEquals(20, mapped.nextRecordOffset());
+                    assertTrue(mapped.next());
+                    assertEquals(36, mapped.nextRecordOffset());
+                }
+                try (CsvReader mapped = new CsvReader(FileChannel.open(file), StandardCharsets.UTF_8, windowSize)) {
+                    AssertCsvRecords(mapped);
+                }
+            }
+            Files.write(file, new byte[0]);
+            try (CsvReader empty = new CsvReader(FileChannel.open(file), StandardCharsets.UTF_8)) {
+                assertFalse(empty.next());
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        CsvReader reader = new CsvReader(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8);
+        assertTrue(reader.next());
+        assertEquals("\"ItemName\",\"Value\"", reader.record());
+        assertEquals(0, reader.rawStart(0));
+        assertEquals(10, reader.rawEnd(0));
+        assertEquals(20, reader.nextRecordStart());
+        assertTrue(CsvReader.IsAsciiCompatible(Charset.forName("Shift_JIS")));
+        assertFalse(CsvReader.IsAsciiCompatible(StandardCharsets.UTF_16));
+    }
+
+    private static void AssertCsvRecords(CsvReader reader) throws IOException {
+        assertTrue(reader.next());
+        assertEquals(Arrays.asList("ItemName", "Value"), CsvFields(reader));
+        assertTrue(reader.next());
+        assertEquals(Arrays.asList("取得", "H10,5"), CsvFields(reader));
+        assertTrue(reader.next());
+        assertEquals(Arrays.asList("say \"hi\"", "2行\r\nの値"), CsvFields(reader));
+        assertTrue(reader.next());
+        assertEquals(Collections.singletonList(""), CsvFields(reader));
+        assertTrue(reader.isEmpty(0));
+        assertTrue(reader.next());
+        assertEquals(Arrays.asList("a\"b", ""), CsvFields(reader));
+        assertTrue(reader.isEmpty(1));
+        assertTrue(reader.next());
+        assertEquals(Arrays.asList("abcd", "last"), CsvFields(reader));
+        assertEquals(6, reader.recordNumber());
+        assertFalse(reader.next());
+    }
+
+    private static List<String> CsvFields(CsvReader reader) {
+        String[] fields = new String[reader.fieldCount()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = reader.field(i);
+        }
+        return Arrays.asList(fields);
+    }
+}
@@ -0,0 +1,47 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CsvWarekiConverterTest {
+
+    @Test
+    public void TestCsvWarekiConverter() throws IOException {
+        String csv = "取得,\"東京都千代田区1-1, \"\"本社\"\"\",x,y,H10.12\n"
+                + "備考,\"a,b\",x,y,\"言った \"\"H\"\"\"\n"
+                + "取得,\"改行\r\nを含む\",x,y,R1.5.1\n";
+        StringWriter converted = new StringWriter();
+        StringBuilder log = new StringBuilder();
+        CsvWarekiConverter.Counts counts;
+        try (BufferedWriter writer = new BufferedWriter(converted)) {
+            counts = CsvWarekiConverter.convert(new CsvReader(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8),
+                    writer, Arrays.asList("取得"), ParseContext.of(2021, 1), log, 0);
+        }
+        assertEquals(3, counts.lines);
+        assertEquals(2, counts.converted);
+        // 変換しない行は元のまま
+        String[] lines = converted.toString().split(System.lineSeparator());
+        assertEquals("備考,\"a,b\",x,y,\"言った \"\"H\"\"\"", lines[1]);
+        // 出力を読み直すと、変換した列以外のフィールドは入力と同じ
+        CsvReader reader = new CsvReader(ByteBuffer.wrap(converted.toString().getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        assertTrue(reader.next());
+        assertEquals(5, reader.fieldCount());
+        assertEquals("東京都千代田区1-1, \"本社\"", reader.field(1));
+        assertEquals("199812", reader.field(4));
+        assertTrue(reader.next());
+        assertEquals("a,b", reader.field(1));
+        assertEquals("言った \"H\"", reader.field(4));
+        assertTrue(reader.next());
+        assertEquals("改行\r\nを含む", reader.field(1));
+        assertEquals("201905", reader.field(4));
+        assertFalse(reader.next());
+    }
+}
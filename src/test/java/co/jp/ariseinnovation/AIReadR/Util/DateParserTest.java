@@ -4,6 +4,16 @@ import co.jp.ariseinnovation.AIReadR.Exception.FormatException;
 import org.joda.time.DateTime;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 
 import static org.junit.Assert.*;
@@ -56,7 +66,7 @@ public class DateParserTest {
         put("21", "2020-01-01");//2文字
         put("21末日", "2020-01-31");//2文字末日付き
         put("昭和21末日", "1927-01-31");//2文字末日付き
-        put("昭和元年1末日", "1926-01-31");//元年1文字末日付き
+        put("大正元年8末日", "1912-08-31");//元年1文字末日付き(昭和元年1月は大正なので期間外)
         put("平成元年1末日", "1989-01-31");//元年1文字末日付き
         put("11", "2019-01-01");//2文字。正しくないかもしれないけれど、変な動きにならないことの確認。
         put("11末日", "2019-01-31");//2文字末日付き。正しくないかもしれないけれど、変な動きにならないことの確認。
@@ -256,7 +266,7 @@ public class DateParserTest {
             //数字が連なっている文字(正しくない可能性もあるが数字形式の推定と同じ仕様にする)
             put("April", DateTime.now().getYear() + "-04-01");//2文字
             put("April末日", DateTime.now().getYear() + "-04-30");//2文字
-            put("昭和元年Jan末日", "1926-01-31");//元年1文字末日付き
+            put("大正元年Aug末日", "1912-08-31");//元年1文字末日付き(昭和元年1月は大正なので期間外)
             put("平成元年Jan末日", "1989-01-31");//元年1文字末日付き
             put("1January", "2019-01-01");//3文字
             put("Nov1", "2019-11-01");//3文字
@@ -424,4 +434,639 @@ public class DateParserTest {
         });
     }
 
+    /**
+     * 1パスの正規化が、辞書の順に置換を繰り返した結果と一致すること
+     */
+    @Test
+    public void TestFullToHalfNormalizer() {
+        String[][] entries = new String[DateParser.halfToFullDictionary.size()][];
+        int n = 0;
+        for (String key : DateParser.halfToFullDictionary.keySet()) {
+            entries[n++] = new String[] { key, DateParser.halfToFullDictionary.get(key) };
+        }
+        FullToHalfNormalizer normalizer = new FullToHalfNormalizer();
+        String[] samples = {
+                "", "令和二十年十二月三十一日", "二十二十一", "十二十二十", "三十三十一", "Ｒ１年５月１０日", "ＡＢＣａｂｃ",
+                "令和元年一一月二四日", "İstanbul 十二", "ΣΑΣ 三十", "\uD801\uDC00二十"
+        };
+        for (String sample : samples) {
+            normalizer.normalize(sample);
+            assertEquals(sample, FullToHalfNormalizer.ReplaceSequentially(sample, entries), normalizer.toString());
+        }
+        // 漢数字の並びを総当たりで確認
+        char[] alphabet = { '二', '三', '十', '一', '〇', '元', 'Ａ', '1' };
+        char[] buf = new char[5];
+        int total = 1;
+        for (int i = 0; i < buf.length; i++) {
+            total *= alphabet.length;
+        }
+        for (int len = 1; len <= buf.length; len++) {
+            for (int v = 0; v < total; v++) {
+                int x = v;
+                for (int i = 0; i < len; i++) {
+                    buf[i] = alphabet[x % alphabet.length];
+                    x /= alphabet.length;
+                }
+                String sample = new String(buf, 0, len);
+                normalizer.normalize(sample);
+                assertEquals(sample, FullToHalfNormalizer.ReplaceSequentially(sample, entries), normalizer.toString());
+            }
+        }
+    }
+
+    /**
+     * 英語月の前後の数字の数
+     */
+    @Test
+    public void TestEnglishMonthInfo() {
+        DateParser.EnglishMonthInfo info = new DateParser.EnglishMonthInfo();
+        assertEquals("2022/01/12", DateParser.ReplaceEnglishMonthToNumber("2022/january/12", info));
+        assertTrue(info.isHasEnglishMonth());
+        assertEquals("01", info.getMonth());
+        assertEquals(4, info.getNumberCountBeforeMonth());
+        assertEquals(2, info.getNumberCountAfterMonth());
+
+        //同じ月が2回ある場合は、1つ目と2つ目の間の数字を数える
+        assertEquals("12 05 2022 05 3", DateParser.ReplaceEnglishMonthToNumber("12 may 2022 may 3", info));
+        assertEquals(2, info.getNumberCountBeforeMonth());
+        assertEquals(4, info.getNumberCountAfterMonth());
+
+        //辞書の登録順が早い月を採用する
+        assertEquals("jan 2020 01", DateParser.ReplaceEnglishMonthToNumber("jan 2020 january", info));
+        assertEquals("01", info.getMonth());
+        assertEquals(4, info.getNumberCountBeforeMonth());
+        assertEquals(0, info.getNumberCountAfterMonth());
+
+        assertEquals("2022/janary/11", DateParser.ReplaceEnglishMonthToNumber("2022/janary/11", info));
+        assertFalse(info.isHasEnglishMonth());
+        assertEquals("", info.getMonth());
+    }
+
+    /**
+     * 数字の切り出し
+     */
+    @Test
+    public void TestNumberTokenizer() {
+        NumberTokenizer tokenizer = new NumberTokenizer();
+        char[] src = "r3年 04月05日".toCharArray();
+        assertTrue(tokenizer.tokenize(src, src.length));
+        assertEquals(3, tokenizer.count());
+        assertEquals(3, tokenizer.value(0));
+        assertEquals(2, tokenizer.digitLength(1));
+        assertEquals(4, tokenizer.value(1));
+        assertTrue(tokenizer.hasAfter(0, '年'));
+        assertFalse(tokenizer.hasAfter(0, '月'));
+        assertTrue(tokenizer.hasAfter(2, '日'));
+        assertFalse(tokenizer.isAfterBlank(1));
+
+        src = "2020 01 01 ".toCharArray();
+        assertTrue(tokenizer.tokenize(src, src.length));
+        assertTrue(tokenizer.isAfterBlank(0));
+        assertTrue(tokenizer.isAfterBlank(2));
+
+        //int に収まらない数字
+        src = "99999999999".toCharArray();
+        assertFalse(tokenizer.tokenize(src, src.length));
+    }
+
+    /**
+     * yyyymmdd の数値で返すパース
+     */
+    @Test
+    public void TestParseToPackedInt() {
+        DateTime now = DateTime.now();
+        INPUT_DATE.keySet().forEach(key -> {
+            int packed = DateParser.parseToPackedInt(key, now.getYear(), now.getMonthOfYear());
+            assertEquals(key, INPUT_DATE.get(key), String.format("%04d-%02d-%02d", packed / 10000, packed / 100 % 100, packed % 100));
+        });
+        //基準日の年月を参考にする
+        assertEquals(20201220, DateParser.parseToPackedInt("12月20日", 2021, 1));
+        assertEquals(20211220, DateParser.parseToPackedInt("12月20日", 2021, 2));
+        assertEquals(20201220, DateParser.parseToPackedInt("2年12月20日", 2021, 1));
+
+        assertTrue(DateParser.parseToPackedInt("2 02 0 1 1 12345", 2021, 1) < 0);
+        assertTrue(DateParser.parseToPackedInt("2021/02/30", 2021, 1) < 0);
+        assertTrue(DateParser.parseToPackedInt("", 2021, 1) < 0);
+        assertTrue(DateParser.parseToPackedInt(null, 2021, 1) < 0);
+    }
+
+    /**
+     * 例外を使わないパースと失敗の理由
+     */
+    @Test
+    public void TestTryParse() {
+        ParseResult result = DateParser.tryParse("令和2年12月20日", 2021, 1);
+        assertTrue(result.isSuccess());
+        assertEquals(ParseStatus.OK, result.getStatus());
+        assertEquals(2020, result.getYear());
+        assertEquals(12, result.getMonth());
+        assertEquals(20, result.getDay());
+
+        assertEquals(ParseStatus.EMPTY, DateParser.tryParse("", 2021, 1).getStatus());
+        assertEquals(ParseStatus.NO_DIGITS, DateParser.tryParse("ドラ", 2021, 1).getStatus());
+        assertEquals(ParseStatus.BAD_MONTH, DateParser.tryParse("2021/13/01", 2021, 1).getStatus());
+        assertEquals(ParseStatus.BAD_DAY, DateParser.tryParse("2021/02/29", 2021, 1).getStatus());
+        assertEquals(ParseStatus.AMBIGUOUS, DateParser.tryParse("令和2 02 0 1", 2021, 1).getStatus());
+        assertEquals(ParseStatus.OUT_OF_RANGE, DateParser.tryParse("99999999999", 2021, 1).getStatus());
+        assertEquals(ParseStatus.UNRECOGNIZED, DateParser.tryParse("2 02 0 ドラ 1 1", 2021, 1).getStatus());
+        assertFalse(DateParser.tryParse("2021/02/29", 2021, 1).isSuccess());
+    }
+
+    /**
+     * LocalDate / YearMonth での結果と月の日数の表
+     */
+    @Test
+    public void TestParseToLocalDate() {
+        ParseResult result = DateParser.tryParse("2020年９月末日", LocalDate.of(2021, 1, 1));
+        assertEquals(LocalDate.of(2020, 9, 30), result.toLocalDate());
+        assertEquals(YearMonth.of(2020, 9), result.toYearMonth());
+        assertEquals(LocalDate.of(2024, 2, 29), DateParser.tryParse("令和六年二月二十九日", LocalDate.of(2021, 1, 1)).toLocalDate());
+        assertEquals(LocalDate.of(2020, 12, 20), DateParser.tryParse("12月20日", LocalDate.of(2021, 1, 1)).toLocalDate());
+
+        for (int year = 1000; year <= 9999; year++) {
+            for (int month = 1; month <= 12; month++) {
+                assertEquals(year + "/" + month, YearMonth.of(year, month).lengthOfMonth(), DateValidator.lengthOfMonth(year, month));
+            }
+        }
+    }
+
+    /**
+     * 時刻付きの文字列
+     */
+    @Test
+    public void TestParseTimestamp() throws Exception {
+        assertEquals("2020-04-01 12:13:14.999", DateParser.Parse("2020/04/01 12:13:14.999999").toString("yyyy-MM-dd HH:mm:ss.SSS"));
+        assertEquals("2025-08-26 18:50:47.000", DateParser.Parse("2025-08-26T18:50:47").toString("yyyy-MM-dd HH:mm:ss.SSS"));
+        assertEquals("2025-08-26 18:50:00.000", DateParser.Parse("2025.08.26 18:50").toString("yyyy-MM-dd HH:mm:ss.SSS"));
+
+        ParseResult result = DateParser.tryParse("２０２５-０８-２６Ｔ１８:５０:４７.５", 2021, 1);
+        assertEquals(ParseStatus.OK, result.getStatus());
+        assertTrue(result.hasTime());
+        assertEquals(LocalDateTime.of(2025, 8, 26, 18, 50, 47, 500000000), result.toLocalDateTime());
+        assertFalse(DateParser.tryParse("2025/08/26", 2021, 1).hasTime());
+
+        assertEquals(ParseStatus.BAD_DAY, DateParser.tryParse("2025-02-29T18:50:47", 2021, 1).getStatus());
+        assertEquals(ParseStatus.UNRECOGNIZED, DateParser.tryParse("2025-08-26T24:00:00", 2021, 1).getStatus());
+        //時刻の形でなければ、従来どおり数字をつなげて判定する
+        assertEquals(20201101, DateParser.parseToPackedInt("2 02 0 1 1", 2021, 1));
+    }
+
+    /**
+     * 基準値を1回だけ求めて使い回す
+     */
+    @Test
+    public void TestParseContext() {
+        ParseContext context = ParseContext.now(Clock.fixed(Instant.parse("2021-01-15T00:00:00Z"), ZoneOffset.UTC));
+        assertEquals(2021, context.getBasisYear());
+        assertEquals(1, context.getBasisMonth());
+        assertEquals(20201220, DateParser.parseToPackedInt("12月20日", context));
+        assertEquals(LocalDate.of(2020, 12, 20), DateParser.tryParse("2年12月20日", context).toLocalDate());
+        assertEquals(LocalDate.of(2022, 12, 20), DateParser.tryParse("22年12月20日", context).toLocalDate());
+        assertEquals(20211220, DateParser.parseToPackedInt("12月20日", ParseContext.of(2021, 2)));
+        try {
+            ParseContext.of(2021, 13);
+            fail("13月の基準値が作成できた。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    /**
+     * パース結果のキャッシュ
+     */
+    @Test
+    public void TestParseCache() {
+        ParseContext context = ParseContext.of(2021, 1);
+        ParseCache cache = ParseCache.lru(2, 1 << 20);
+        assertEquals(19980501, cache.parseToPackedInt("H10.5", context));
+        assertEquals(19980501, cache.parseToPackedInt("H10.5", context));
+        assertEquals(ParseStatus.NO_DIGITS, cache.tryParse("ドラ", context).getStatus());
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        //基準値が違えば別のキー
+        assertEquals(20211220, cache.parseToPackedInt("12月20日", ParseContext.of(2021, 2)));
+        assertEquals(20201220, cache.parseToPackedInt("12月20日", context));
+        assertEquals(2, cache.size());
+        //LRU で追い出されている
+        cache.parseToPackedInt("H10.5", context);
+        assertEquals(1, cache.hitCount());
+        //時刻も保存する
+        assertEquals(LocalDateTime.of(2025, 8, 26, 18, 50, 47), cache.tryParse("2025-08-26T18:50:47", context).toLocalDateTime());
+        assertEquals(LocalDateTime.of(2025, 8, 26, 18, 50, 47), cache.tryParse("2025-08-26T18:50:47", context).toLocalDateTime());
+
+        //バイト数の上限
+        ParseCache small = ParseCache.lru(100, 400);
+        small.parseToPackedInt("令和6.1.1", context);
+        small.parseToPackedInt("令和6.1.2", context);
+        small.parseToPackedInt("令和6.1.3", context);
+        assertTrue(small.estimatedBytes() <= 400);
+        assertEquals(2, small.size());
+
+        //一度しか現れない文字列は、頻出の文字列を追い出さない
+        ParseCache frequency = ParseCache.frequencyAware(2, 1 << 20);
+        for (int i = 0; i < 5; i++) {
+            frequency.parseToPackedInt("H10.5", context);
+            frequency.parseToPackedInt("R61", context);
+        }
+        for (int i = 1; i <= 28; i++) {
+            assertEquals(20240100 + i, frequency.parseToPackedInt("令和6.1." + i, context));
+        }
+        long hits = frequency.hitCount();
+        frequency.parseToPackedInt("H10.5", context);
+        frequency.parseToPackedInt("R61", context);
+        assertEquals(hits + 2, frequency.hitCount());
+
+        //入れるかどうかは最初の候補と比べて1回だけ決め、入れる場合はバイト数が足りるまで追い出す
+        ParseCache admission = ParseCache.frequencyAware(100, 600);//1件 170バイト(5文字)、長い文字列は 280バイト(60文字)
+        admission.parseToPackedInt("H10.5", context);
+        admission.parseToPackedInt("H11.5", context);
+        for (int i = 0; i < 5; i++) {
+            admission.parseToPackedInt("H11.5", context);
+        }
+        admission.parseToPackedInt("H12.5", context);
+        String large = "R6.1.1 -----------------------------------------------------";
+        admission.parseToPackedInt(large, context);//H10.5 と頻度が同じなので入れない(何も追い出さない)
+        assertEquals(3, admission.size());
+        admission.parseToPackedInt(large, context);//H10.5 より頻度が高いので、H10.5 と H11.5 を追い出して入れる
+        assertEquals(2, admission.size());
+        hits = admission.hitCount();
+        admission.parseToPackedInt(large, context);
+        admission.parseToPackedInt("H12.5", context);
+        assertEquals(hits + 2, admission.hitCount());
+        assertEquals(450, admission.estimatedBytes());
+
+        //正規化すると同じになる文字列(全角と半角)は同じキー
+        ParseCache normalized = ParseCache.lru(100, 1 << 20);
+        assertEquals(19980501, normalized.parseToPackedInt("H10.5", context));
+        assertEquals(19980501, normalized.parseToPackedInt("Ｈ１０.５", context));
+        assertEquals(1, normalized.hitCount());
+        assertEquals(1, normalized.size());
+
+        //設定を変えたインスタンスの前に置く
+        LinkedHashMap<String, String> months = new LinkedHashMap<>(DateParser.englishMonthDictionary);
+        months.put("janv", "01");
+        DateParser french = DateParser.builder().englishMonthDictionary(months).build();
+        ParseCache frenchCache = ParseCache.lru(french, 100, 1 << 20);
+        assertSame(french, frenchCache.getParser());
+        assertEquals(20210105, frenchCache.parseToPackedInt("5 janv 2021", context));
+        assertEquals(20210105, frenchCache.tryParse("5 JANV 2021", context).getPacked());
+        assertEquals(1, frenchCache.hitCount());
+        assertTrue(cache.tryParse("5 janv 2021", context).getPacked() < 0);
+    }
+
+    /**
+     * 設定を変えたインスタンス
+     */
+    @Test
+    public void TestDateParserBuilder() {
+        ParseContext context = ParseContext.of(2021, 1);
+        LinkedHashMap<String, String> months = new LinkedHashMap<>(DateParser.englishMonthDictionary);
+        months.put("janv", "01");
+        DateParser french = DateParser.builder().englishMonthDictionary(months).build();
+        assertEquals(20210105, french.parsePacked("5 janv 2021", context));
+        assertEquals(ParseStatus.NO_DIGITS, DateParser.tryParse("janv", context).getStatus());
+        //作成後に元の辞書を変更しても影響しない
+        months.put("fevr", "02");
+        assertTrue(french.parsePacked("5 fevr 2021", context) < 0);
+        try {
+            french.getConfig().getEnglishMonthDictionary().put("fevr", "02");
+            fail("設定の辞書が変更できた。");
+        } catch (UnsupportedOperationException e) {
+            // OK
+        }
+        try {
+            DateParser.englishMonthDictionary.put("fevr", "02");
+            fail("既定の辞書が変更できた。");
+        } catch (UnsupportedOperationException e) {
+            // OK
+        }
+
+        //年号を限定する
+        DateParser heiseiOnly = DateParser.builder().gengoTable(Arrays.asList(GengoYearTable.HEISEI, GengoYearTable.HEISEI_H)).build();
+        assertEquals(19980501, heiseiOnly.parsePacked("H10.5", context));
+        assertEquals(19750101, DateParser.parseToPackedInt("S50.1.1", context));
+        assertEquals(20500101, heiseiOnly.parsePacked("S50.1.1", context));//昭和を認識しないので、年号なしの2桁の年として扱う
+
+        //西暦として扱う年の範囲
+        DateParser modern = DateParser.builder().yearRange(1900, 2100).build();
+        assertEquals(20201220, modern.parsePacked("2020/12/20", context));
+        assertTrue(modern.parsePacked("1800/12/20", context) < 0);
+        assertEquals(18001220, DateParser.parseToPackedInt("1800/12/20", context));
+        //時刻付きの形も同じ範囲で確認する
+        assertEquals(20201220, modern.parsePacked("2020/12/20 10:30:00", context));
+        assertEquals(ParseStatus.OUT_OF_RANGE, modern.parse("1800/12/20 10:30:00", context).getStatus());
+        assertEquals(18001220, DateParser.parseToPackedInt("1800/12/20 10:30:00", context));
+        assertEquals(ParseStatus.OUT_OF_RANGE, DateParser.tryParse("0000/01/01 00:00:00", context).getStatus());
+
+        try {
+            DateParser.builder().englishMonthDictionary(Collections.singletonMap("jan", "1")).build();
+            fail("2桁でない英語月が登録できた。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            DateParser.builder().englishMonthDictionary(Collections.singletonMap("j", "01")).build();
+            fail("1文字の英語月が登録できた。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        assertSame(DateParser.getDefault(), DateParser.getDefault());
+    }
+
+    /**
+     * 年号の索引は、年号の表を先頭から前方一致で探した結果と同じ
+     */
+    @Test
+    public void TestGengoIndex() {
+        GengoIndex index = GengoIndex.compile(GengoYearTable.table);
+        String[] samples = { "昭和56年", "昭56", "s56", "平成元年", "平1", "h30", "令和2", "令2", "r2", "l2", "明治1", "2020", "", "昭", "和2" };
+        for (String sample : samples) {
+            GengoYearTable expected = GengoYearTable.table.stream()
+                    .filter(gengo -> sample.startsWith(gengo.gengo.toLowerCase()))
+                    .findFirst().orElse(null);
+            int found = index.find(sample.toCharArray(), sample.length());
+            assertEquals(sample, expected, found < 0 ? null : index.gengo(found));
+            if (found >= 0) {
+                assertEquals(sample, expected.gengo.length(), index.prefixLength(found));
+            }
+        }
+    }
+
+    /**
+     * 年号の期間外の日付は OUT_OF_ERA。日がない場合は月のいずれかの日が期間内ならよい
+     */
+    @Test
+    public void TestGengoCalendar() {
+        ParseContext context = ParseContext.of(2021, 1);
+        assertEquals(20190430, DateParser.parseToPackedInt("H31.4.30", context));
+        assertEquals(ParseStatus.OUT_OF_ERA, DateParser.tryParse("H31.5.1", context).getStatus());
+        assertEquals(ParseStatus.OUT_OF_ERA, DateParser.tryParse("H31.5", context).getStatus());
+        assertEquals(20190501, DateParser.parseToPackedInt("R1.5.1", context));
+        assertEquals(ParseStatus.OUT_OF_ERA, DateParser.tryParse("R1.4", context).getStatus());
+        assertEquals(19890101, DateParser.parseToPackedInt("S64.1", context));
+        assertEquals(19890107, DateParser.parseToPackedInt("S64.1.7", context));
+        assertEquals(ParseStatus.OUT_OF_ERA, DateParser.tryParse("S64.1.8", context).getStatus());
+        assertEquals(ParseStatus.OUT_OF_ERA, DateParser.tryParse("S64.2", context).getStatus());
+        assertEquals(19890101, DateParser.parseToPackedInt("H1.1", context));
+        assertEquals(ParseStatus.OUT_OF_ERA, DateParser.tryParse("昭和元年1末日", context).getStatus());
+        assertEquals(19120729, DateParser.parseToPackedInt("明治45年7月29日", context));
+        assertEquals(19120730, DateParser.parseToPackedInt("大1.7.30", context));
+        assertEquals(ParseStatus.OUT_OF_ERA, DateParser.tryParse("明45.7.30", context).getStatus());
+        //英字の M、T は年号ではない(曜日や英語月の先頭)
+        String[][] notEras = { { "Tue 2020/01/05", "20200105" }, { "Mon 2020/01/05", "20200105" }, { "tue, 05 jan 2020", "20200105" },
+                { "Thu Jan 05 2020", "20200105" }, { "t2020/1/5", "20200105" }, { "Mar 5 2020", "20200305" }, { "May 5 2020", "20200505" } };
+        for (String[] notEra : notEras) {
+            assertEquals(notEra[0], Integer.parseInt(notEra[1]), DateParser.parseToPackedInt(notEra[0], context));
+            assertEquals(notEra[0], Integer.parseInt(notEra[1]), DateParser.tryParse(notEra[0], context).getPacked());
+        }
+
+        //西暦→和暦
+        assertEquals(GengoCalendar.NONE, GengoCalendar.eraOf(18671231));
+        assertEquals(GengoCalendar.MEIJI, GengoCalendar.eraOf(18680101));
+        assertEquals(GengoCalendar.SHOWA, GengoCalendar.eraOf(19890107));
+        assertEquals(GengoCalendar.HEISEI, GengoCalendar.eraOf(19890108));
+        assertEquals(GengoCalendar.REIWA, GengoCalendar.eraOf(20261017));
+        assertEquals("平成31年4月30日", GengoCalendar.format(20190430));
+        assertEquals("令和元年5月1日", GengoCalendar.format(20190501));
+        assertEquals(GengoCalendar.HEISEI, GengoCalendar.eraOfYearAdd(GengoYearTable.HEISEI_H.yearAdd));
+        assertEquals(GengoCalendar.NONE, GengoCalendar.eraOfYearAdd(2000));
+    }
+
+    /**
+     * 数字が1つにつながった日付の形の表
+     */
+    @Test
+    public void TestDigitShapeTable() {
+        DigitShapeTable table = DigitShapeTable.DEFAULT;
+        DigitShapeTable.Shape shape = table.find(5, DigitShapeTable.Flags(false, true, false));
+        assertEquals(DigitShapeTable.Check.MONTH, shape.check);
+        assertEquals("eMMdd", shape.layout(0).toString());
+        assertEquals(1, shape.layout(0).monthStart);
+        assertEquals(3, shape.layout(0).monthEnd);
+        assertEquals(DigitShapeTable.Kind.NEAR_YEAR, table.find(6, DigitShapeTable.Flags(false, false, false)).kind);
+        assertEquals("yyyyMM", table.find(6, DigitShapeTable.Flags(false, false, true)).layout(0).toString());
+        assertNull(table.find(9, 0));
+        assertNull(table.find(1, 0));
+
+        ParseContext context = ParseContext.of(2021, 1);
+        assertEquals(20130102, DateParser.parseToPackedInt("13012", context));//eMMdd の月が30なので eeMMd
+        assertEquals(20201220, DateParser.parseToPackedInt("20201220", context));
+        assertEquals(20201220, DateParser.parseToPackedInt("2020dec20", context));
+        assertEquals(20201220, DateParser.parseToPackedInt("20dec2020", context));
+        assertEquals(ParseStatus.AMBIGUOUS, DateParser.tryParse("202dec020", context).getStatus());
+
+        try {
+            new DigitShapeTable().add(4, "-english", DigitShapeTable.Shape.layouts(DigitShapeTable.Check.NONE, "yyMMd"));
+            fail("桁数が合わない形が登録できた。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            new DigitShapeTable().add(4, "", DigitShapeTable.Shape.layouts(DigitShapeTable.Check.NONE, "yyMM"))
+                    .add(4, "+gengo", DigitShapeTable.Shape.layouts(DigitShapeTable.Check.NONE, "eeMM"));
+            fail("重複する条件が登録できた。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    /**
+     * まとめてパースした結果は、1件ずつパースした結果と同じ
+     */
+    @Test
+    public void TestParseAll() {
+        ParseContext context = ParseContext.of(2021, 1);
+        CharSequence[] src = { "2020/12/20", "2020/12/20", "H31.5.1", null, "", "令和2年12月20日", new StringBuilder("12/20"), "ドラ" };
+        int[] packed = new int[src.length];
+        byte[] status = new byte[src.length];
+        ParseBatchResult result = DateParser.parseAll(src, packed, status, context);
+        for (int i = 0; i < src.length; i++) {
+            assertEquals(String.valueOf(src[i]), DateParser.parseToPackedInt(src[i], context), packed[i]);
+            assertEquals(String.valueOf(src[i]), ParseStatus.ofPacked(packed[i]).getCode(), status[i]);
+        }
+        assertEquals(8, result.getCount());
+        assertEquals(4, result.getSuccessCount());
+        assertEquals(4, result.getFailureCount());
+        assertEquals(2, result.getCount(ParseStatus.EMPTY));
+        assertEquals(1, result.getCount(ParseStatus.OUT_OF_ERA));
+
+        int[] listPacked = new int[src.length];
+        assertEquals(4, DateParser.parseAll(Arrays.asList(src), listPacked, null, context).getSuccessCount());
+        assertArrayEquals(packed, listPacked);
+        int[] iterablePacked = new int[src.length];
+        assertEquals(8, DateParser.parseAll((Iterable<CharSequence>) Arrays.asList(src), iterablePacked, null, context).getCount());
+        assertArrayEquals(packed, iterablePacked);
+
+        ParseCache cache = ParseCache.lru(100, 1 << 20);
+        int[] cachedPacked = new int[src.length];
+        assertEquals(4, cache.parseAll(src, cachedPacked, null, context).getSuccessCount());
+        assertArrayEquals(packed, cachedPacked);
+        //2回目はすべてキャッシュから引く(直前と同じ文字列はキャッシュも引かない)
+        long misses = cache.missCount();
+        int[] batchPacked = new int[src.length];
+        assertEquals(4, DateParser.getDefault().parseBatch(src, batchPacked, null, context, cache).getSuccessCount());
+        assertArrayEquals(packed, batchPacked);
+        assertEquals(misses, cache.missCount());
+        try {
+            DateParser.builder().build().parseBatch(src, batchPacked, null, context, cache);
+            fail("別の DateParser のキャッシュを使えた。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+
+        try {
+            DateParser.parseAll((Iterable<CharSequence>) Arrays.asList(src), new int[2], null, context);
+            fail("短い配列に書き込めた。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    /**
+     * 並列にまとめてパースした結果は、順にまとめてパースした結果と同じ
+     */
+    @Test
+    public void TestParseAllParallel() {
+        ParseContext context = ParseContext.of(2021, 1);
+        String[] samples = INPUT_DATE.keySet().toArray(new String[0]);
+        CharSequence[] src = new CharSequence[20000];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = i % 7 == 0 ? "ドラ" : samples[i % samples.length];
+        }
+        int[] expected = new int[src.length];
+        ParseBatchResult sequential = DateParser.parseAll(src, expected, null, context);
+        int[] packed = new int[src.length];
+        byte[] status = new byte[src.length];
+        ParseBatchResult parallel = DateParser.parseAllParallel(src, packed, status, context, 4, 100);
+        assertArrayEquals(expected, packed);
+        assertEquals(sequential.getCount(), parallel.getCount());
+        assertEquals(sequential.getSuccessCount(), parallel.getSuccessCount());
+        assertEquals(sequential.getCount(ParseStatus.NO_DIGITS), parallel.getCount(ParseStatus.NO_DIGITS));
+        assertEquals(ParseStatus.NO_DIGITS.getCode(), status[0]);
+
+        int[] commonPoolPacked = new int[src.length];
+        DateParser.parseAllParallel(src, commonPoolPacked, null, context);
+        assertArrayEquals(expected, commonPoolPacked);
+
+        try {
+            DateParser.parseAllParallel(src, packed, null, context, 0, 100);
+            fail("並列数0でパースできた。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    /**
+     * 文字列・char[] の範囲をパースした結果は、範囲を切り出した文字列をパースした結果と同じ
+     */
+    @Test
+    public void TestParseSlice() {
+        ParseContext context = ParseContext.of(2021, 1);
+        for (String key : INPUT_DATE.keySet()) {
+            String line = "固定資産,取得日," + key + ",100";
+            int start = line.indexOf(key);
+            int expected = DateParser.parseToPackedInt(key, context);
+            assertEquals(key, expected, DateParser.parseToPackedInt(line, start, start + key.length(), context));
+            char[] buf = line.toCharArray();
+            assertEquals(key, expected, DateParser.parseToPackedInt(buf, start, key.length(), context));
+            assertEquals(key, DateParser.tryParse(key, context).toString(), DateParser.tryParse(buf, start, key.length(), context).toString());
+        }
+        char[] timestamp = "x,2025-08-26T18:50:47,y".toCharArray();
+        ParseResult result = DateParser.tryParse(timestamp, 2, 19, context);
+        assertEquals(LocalDateTime.of(2025, 8, 26, 18, 50, 47), result.toLocalDateTime());
+        assertEquals(ParseStatus.EMPTY, DateParser.tryParse(timestamp, 2, 0, context).getStatus());
+        try {
+            DateParser.tryParse(timestamp, 20, 10, context);
+            fail("配列に収まらない範囲をパースできた。");
+        } catch (IndexOutOfBoundsException e) {
+            // OK
+        }
+    }
+
+    /**
+     * UTF-8 のバイト列をパースした結果は、文字列をパースした結果と同じ
+     */
+    @Test
+    public void TestParseUtf8() {
+        ParseContext context = ParseContext.of(2021, 1);
+        for (String key : INPUT_DATE.keySet()) {
+            byte[] line = ("x," + key + ",y").getBytes(StandardCharsets.UTF_8);
+            int length = key.getBytes(StandardCharsets.UTF_8).length;
+            int expected = DateParser.parseToPackedInt(key, context);
+            assertEquals(key, expected, DateParser.parseUtf8ToPackedInt(line, 2, length, context));
+            ByteBuffer heap = ByteBuffer.wrap(line, 2, length);
+            assertEquals(key, expected, DateParser.parseUtf8ToPackedInt(heap.slice(), context));
+            assertEquals(2, heap.position());
+            ByteBuffer direct = ByteBuffer.allocateDirect(line.length);
+            direct.put(line).flip().position(2).limit(2 + length);
+            assertEquals(key, expected, DateParser.parseUtf8ToPackedInt(direct, context));
+        }
+        byte[] fullWidth = "２０２０／１２／２０".getBytes(StandardCharsets.UTF_8);
+        assertEquals(20201220, DateParser.parseUtf8ToPackedInt(fullWidth, 0, fullWidth.length, context));
+        byte[] timestamp = "2025-08-26T18:50:47".getBytes(StandardCharsets.UTF_8);
+        assertTrue(DateParser.tryParseUtf8(timestamp, 0, timestamp.length, context).hasTime());
+        byte[] broken = { '2', '0', '2', '0', '/', (byte) 0xE5, '1', '2', '/', '2', '0' };
+        assertEquals(DateParser.parseToPackedInt(new String(broken, StandardCharsets.UTF_8), context),
+                DateParser.parseUtf8ToPackedInt(broken, 0, broken.length, context));
+        assertEquals(ParseStatus.EMPTY, DateParser.tryParseUtf8(broken, 3, 0, context).getStatus());
+    }
+
+    @Test
+    public void TestParseCandidates() {
+        ParseContext context = ParseContext.of(2025, 6);
+        for (String key : INPUT_DATE.keySet()) {
+            ParseCandidates candidates = DateParser.parseCandidates(key, context);
+            int expected = DateParser.parseToPackedInt(key, context);
+            assertEquals(key, ParseStatus.ofPacked(expected), candidates.getStatus());
+            if (expected >= 0) {
+                assertEquals(key, expected, candidates.getPacked(0));
+                assertTrue(key, candidates.hasFlag(0, ParseCandidates.SELECTED));
+            }
+        }
+        // yyMMdd と、令和25年の読み方
+        ParseCandidates yyMMdd = DateParser.parseCandidates("250613", context);
+        assertEquals(2, yyMMdd.size());
+        assertEquals(20250613, yyMMdd.getPacked(0));
+        assertTrue(yyMMdd.hasFlag(0, ParseCandidates.SEIREKI_2000S));
+        assertEquals(0, yyMMdd.getScore(0));
+        assertEquals(20430613, yyMMdd.getPacked(1));
+        assertTrue(yyMMdd.hasFlag(1, ParseCandidates.REIWA_OMITTED));
+        assertFalse(yyMMdd.hasFlag(0, ParseCandidates.SPLIT_ALTERNATIVE));
+        // yyMMdd の令和12年(基準値に近い)と2012年。yyyyMM(1210年20月)は不正なので含まない
+        ParseCandidates nearYear = DateParser.parseCandidates("121020", context);
+        assertEquals(2, nearYear.size());
+        assertEquals(20301020, nearYear.getPacked(0));
+        assertEquals(20121020, nearYear.getPacked(1));
+        // eMMdd の令和元年と2001年
+        ParseCandidates era = DateParser.parseCandidates("11210", context);
+        assertEquals(20191210, era.getPacked(0));
+        assertTrue(era.hasFlag(0, ParseCandidates.REIWA_OMITTED));
+        assertEquals(20011210, era.getPacked(1));
+        // 選ばれる読み方がなくても、ほかの区切り方の候補は返す
+        ParseCandidates eeM = DateParser.parseCandidates("123", context);
+        assertEquals(ParseStatus.BAD_MONTH, eeM.getStatus());
+        assertEquals(20300301, eeM.getPacked(0));
+        assertEquals(20120301, eeM.getPacked(1));
+        assertTrue(DateParser.parseCandidates("abc", context).isEmpty());
+        // 年号が書かれている場合は令和・20xx年に広げない
+        assertEquals(1, DateParser.parseCandidates("令和7年6月", context).size());
+    }
+
+    @Test
+    public void TestDateValidator() {
+        for (int month = 1; month <= 12; month++) {
+            int maximum = YearMonth.of(2020, month).lengthOfMonth();
+            assertTrue(DateValidator.isPossibleDay(maximum, month));
+            assertFalse(DateValidator.isPossibleDay(maximum + 1, month));
+            assertFalse(DateValidator.isPossibleDay(0, month));
+        }
+        assertFalse(DateValidator.isPossibleDay(1, 0));
+        assertFalse(DateValidator.isPossibleDay(1, 13));
+        assertEquals(20240229, DateValidator.validate(2024, 2, 29));
+        assertEquals(ParseStatus.BAD_DAY.packed(), DateValidator.validate(2023, 2, 29));
+        assertEquals(ParseStatus.BAD_DAY.packed(), DateValidator.validate(1900, 2, 29));
+        assertEquals(20000229, DateValidator.validate(2000, 2, 29));
+        assertEquals(ParseStatus.BAD_MONTH.packed(), DateValidator.validate(2024, 13, 1));
+        assertEquals(ParseStatus.BAD_DAY.packed(), DateValidator.validate(2024, 4, 31));
+    }
 }
@@ -0,0 +1,82 @@
+package co.jp.ariseinnovation.AIReadR.Util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class ParallelCsvConverterTest {
+
+    @Test
+    public void TestParallelCsvConverter() throws IOException {
+        byte[] crlf = "a,b\r\n".getBytes(StandardCharsets.UTF_8);
+        assertEquals(5, CsvReader.LastRecordBoundary(crlf, 0, crlf.length));
+        // 引用符の中の改行はレコードの区切りにしない
+        byte[] quoted = "a,\"x\ny".getBytes(StandardCharsets.UTF_8);
+        assertEquals(-1, CsvReader.LastRecordBoundary(quoted, 0, quoted.length));
+        byte[] escaped = "a\n\"x\"\"\ny\"\nb".getBytes(StandardCharsets.UTF_8);
+        assertEquals(10, CsvReader.LastRecordBoundary(escaped, 0, escaped.length));
+
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            csv.append(i).append(",\"値").append(i % 7 == 0 ? "\r\n改行" : "").append("\"\r\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        // 各レコードをそのまま書き出し、1列目が3の倍数の行を変換した行として数えてログに出す
+        ParallelCsvConverter.ChunkConverter copy = (reader, out, log) -> {
+            int converted = 0;
+            while (reader.next()) {
+                reader.copyTo(out, reader.recordStart(), reader.nextRecordStart());
+                if (Integer.parseInt(reader.field(0)) % 3 == 0) {
+                    log.append(reader.field(0)).append(' ');
+                    converted++;
+                }
+            }
+            return converted;
+        };
+        StringBuilder expectedLog = new StringBuilder();
+        for (int i = 0; i < 200; i += 3) {
+            expectedLog.append(i).append(' ');
+        }
+        // チャンクがレコードより短い場合(チャンクを広げる)も含め、出力とログの順序は入力と同じになる
+        for (int chunkSize : new int[] { 1, 10, 100, ParallelCsvConverter.DEFAULT_CHUNK_SIZE }) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            StringBuilder log = new StringBuilder();
+            ParallelCsvConverter.Result result = new ParallelCsvConverter(StandardCharsets.UTF_8, 4, chunkSize, copy)
+                    .convert(new ByteArrayInputStream(bytes), out, log);
+            assertArrayEquals(bytes, out.toByteArray());
+            assertEquals(expectedLog.toString(), log.toString());
+            assertEquals(200, result.records);
+            assertEquals(67, result.converted);
+        }
+        // ファイルを窓の単位でメモリに割り当て、チャンクは窓の範囲として渡す(窓より長いレコードは窓を広げる)
+        Path file = Files.createTempFile("ParallelCsvConverter", ".csv");
+        try {
+            Files.write(file, bytes);
+            for (int windowSize : new int[] { 1, 16, 1000, CsvReader.DEFAULT_WINDOW_SIZE }) {
+                for (int chunkSize : new int[] { 1, 100 }) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    StringBuilder log = new StringBuilder();
+                    ParallelCsvConverter.Result result;
+                    try (FileChannel channel = FileChannel.open(file)) {
+                        result = new ParallelCsvConverter(StandardCharsets.UTF_8, 4, chunkSize, copy)
+                                .convert(channel, 0, windowSize, out, log);
+                    }
+                    assertArrayEquals(bytes, out.toByteArray());
+                    assertEquals(expectedLog.toString(), log.toString());
+                    assertEquals(200, result.records);
+                    assertEquals(67, result.converted);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}